@@ -0,0 +1,54 @@
+package com.quintech.criteria.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import com.quintech.criteria.DataGenerator;
+
+/**
+ * Database filled by the seeded {@link DataGenerator}, in memory unless the benchmark.url system property names
+ * another HSQLDB database, e.g. jdbc:hsqldb:file:/tmp/benchmark;hsqldb.default_table_type=cached for tens of
+ * millions of rows.
+ */
+public final class BenchmarkDatabase
+{
+    private static final long SEED = 20140301L;
+    private static final String URL = System.getProperty("benchmark.url", "jdbc:hsqldb:mem:benchmark");
+
+    private BenchmarkDatabase()
+    {
+        super();
+    }
+
+    public static EntityManagerFactory create(int persons)
+    {
+        try
+        {
+            Class.forName("org.hsqldb.jdbcDriver");
+            Connection connection = DriverManager.getConnection(URL, "sa", "");
+            try
+            {
+                new DataGenerator(SEED).persons(persons).generate(connection);
+            }
+            finally
+            {
+                connection.close();
+            }
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException("Cannot build the benchmark database", e);
+        }
+
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("openjpa.ConnectionURL", URL);
+        properties.put("openjpa.Log", "DefaultLevel=WARN");
+        properties.put("openjpa.ConnectionFactoryProperties", "PrintParameters=false");
+        return Persistence.createEntityManagerFactory("openjpa", properties);
+    }
+}
@@ -0,0 +1,113 @@
+package com.quintech.criteria.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.quintech.criteria.FromInfo;
+import com.quintech.criteria.Query;
+import com.quintech.criteria.QueryTemplate;
+import com.quintech.entities.Person;
+import com.quintech.entities.Person_;
+
+/**
+ * Cost of building the same query through the fluent API and through the CriteriaBuilder, then of turning it into
+ * a TypedQuery, without executing it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark
+{
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private CriteriaQuery<Person> criteria;
+    private QueryTemplate<Person> template;
+
+    @Setup
+    public void setup()
+    {
+        this.emf = BenchmarkDatabase.create(100);
+        this.em = this.emf.createEntityManager();
+        this.criteria = criteriaBuilderQuery();
+        this.template = Query.using(this.em).parameterized().selectFrom(Person.class).with(Person_.lastName)
+            .equalTo("Smith").and(Person_.gender).equalTo("F").ascendingBy(Person_.firstName).compile();
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        this.em.close();
+        this.emf.close();
+    }
+
+    @Benchmark
+    public FromInfo<Person, Person> fluentQuery()
+    {
+        return Query.using(this.em).selectFrom(Person.class).with(Person_.lastName).equalTo("Smith")
+            .and(Person_.gender).equalTo("F").and(Person_.birthDate).notBefore(new Date(0))
+            .ascendingBy(Person_.firstName);
+    }
+
+    @Benchmark
+    public CriteriaQuery<Person> criteriaBuilderQuery()
+    {
+        CriteriaBuilder builder = this.em.getCriteriaBuilder();
+        CriteriaQuery<Person> query = builder.createQuery(Person.class);
+        Root<Person> person = query.from(Person.class);
+        query.select(person).where(builder.equal(person.get(Person_.lastName), "Smith"),
+            builder.equal(person.get(Person_.gender), "F"),
+            builder.greaterThanOrEqualTo(person.get(Person_.birthDate), new Date(0)))
+            .orderBy(builder.asc(person.get(Person_.firstName)));
+        return query;
+    }
+
+    /**
+     * Builds the query fluently, compiles it into a template and binds the template to the EntityManager, which is
+     * how a fluent query becomes a TypedQuery without executing it.
+     */
+    @Benchmark
+    public TypedQuery<Person> fluentCompileAndBind()
+    {
+        return fluentQuery().compile().bind(this.em);
+    }
+
+    @Benchmark
+    public TypedQuery<Person> criteriaBuilderCreateQuery()
+    {
+        return this.em.createQuery(criteriaBuilderQuery());
+    }
+
+    @Benchmark
+    public TypedQuery<Person> templateBind()
+    {
+        return this.template.bind(this.em, "Smith", "F");
+    }
+
+    @Benchmark
+    public TypedQuery<Person> criteriaCreateQuery()
+    {
+        return this.em.createQuery(this.criteria);
+    }
+}
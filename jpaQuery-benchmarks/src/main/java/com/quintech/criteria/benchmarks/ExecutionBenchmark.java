@@ -0,0 +1,95 @@
+package com.quintech.criteria.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.quintech.criteria.Query;
+import com.quintech.entities.Person;
+import com.quintech.entities.Person_;
+
+/**
+ * End to end resultList() of a selective query, through the fluent API and through the CriteriaBuilder. The
+ * persistence context is cleared after every call so each one loads its entities again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionBenchmark
+{
+    @Param({ "1000", "10000", "100000" })
+    public int persons;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+
+    @Setup
+    public void setup()
+    {
+        this.emf = BenchmarkDatabase.create(this.persons);
+        this.em = this.emf.createEntityManager();
+    }
+
+    /**
+     * Clearing after each invocation would add a JMH timestamp and call to every measured call; the persistence
+     * context holds at most the entities of one iteration instead.
+     */
+    @TearDown(Level.Iteration)
+    public void clear()
+    {
+        this.em.clear();
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        this.em.close();
+        this.emf.close();
+    }
+
+    @Benchmark
+    public List<Person> fluentResultList()
+    {
+        return Query.using(this.em).selectFrom(Person.class).with(Person_.lastName).equalTo("Smith")
+            .and(Person_.gender).equalTo("F").ascendingBy(Person_.firstName).limit(100);
+    }
+
+    @Benchmark
+    public List<Person> criteriaBuilderResultList()
+    {
+        CriteriaBuilder builder = this.em.getCriteriaBuilder();
+        CriteriaQuery<Person> query = builder.createQuery(Person.class);
+        Root<Person> person = query.from(Person.class);
+        query.select(person).where(builder.equal(person.get(Person_.lastName), "Smith"),
+            builder.equal(person.get(Person_.gender), "F")).orderBy(builder.asc(person.get(Person_.firstName)));
+        return this.em.createQuery(query).setMaxResults(100).getResultList();
+    }
+
+    @Benchmark
+    public long fluentCount()
+    {
+        return Query.using(this.em).selectFrom(Person.class).with(Person_.lastName).equalTo("Smith").count();
+    }
+}
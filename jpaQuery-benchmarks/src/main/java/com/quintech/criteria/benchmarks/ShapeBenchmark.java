@@ -0,0 +1,109 @@
+package com.quintech.criteria.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.quintech.criteria.Query;
+import com.quintech.entities.Address;
+import com.quintech.entities.Address_;
+import com.quintech.entities.Person;
+import com.quintech.entities.Person_;
+import com.quintech.entities.Phone_;
+
+/**
+ * Join and IN-list query shapes over growing tables and IN lists; IN lists above 500 values are chunked.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeBenchmark
+{
+    @Param({ "1000", "10000", "100000" })
+    public int persons;
+
+    @Param({ "10", "100", "1000" })
+    public int inSize;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private List<Integer> ids;
+
+    @Setup
+    public void setup()
+    {
+        this.emf = BenchmarkDatabase.create(this.persons);
+        this.em = this.emf.createEntityManager();
+        this.ids = new ArrayList<Integer>(this.inSize);
+        int step = Math.max(1, this.persons / this.inSize);
+        for (int id = 1; this.ids.size() < this.inSize; id += step)
+        {
+            this.ids.add(id);
+        }
+    }
+
+    /**
+     * Clearing after each invocation would add a JMH timestamp and call to every measured call; the persistence
+     * context holds at most the entities of one iteration instead.
+     */
+    @TearDown(Level.Iteration)
+    public void clear()
+    {
+        this.em.clear();
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        this.em.close();
+        this.emf.close();
+    }
+
+    @Benchmark
+    public List<Person> inList()
+    {
+        return Query.using(this.em).selectFrom(Person.class).with(Person_.id).in(this.ids).resultList();
+    }
+
+    @Benchmark
+    public List<Person> associationJoinWithInList()
+    {
+        return Query.using(this.em).selectFrom(Person.class).with(Person_.id).in(this.ids)
+            .join(Person_.phones).with(Phone_.type).equalTo("Mobile").resultList();
+    }
+
+    @Benchmark
+    public List<Person> entityJoinWithInList()
+    {
+        return Query.using(this.em).selectFrom(Person.class).with(Person_.id).in(this.ids)
+            .andFrom(Address.class).joinOn(Person_.id, Address_.personId).with(Address_.state).equalTo("CA")
+            .resultList();
+    }
+
+    @Benchmark
+    public List<Person> fetchWithInList()
+    {
+        return Query.using(this.em).selectFrom(Person.class).distinct().fetch(Person_.phones).with(Person_.id)
+            .in(this.ids).resultList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.quintech.criteria;
+
+import java.util.Collection;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Entity that field criteria add their predicates to. The package private methods are the plumbing between the
+ * criteria and the query; they are not part of {@link FromInfo}.
+ */
+abstract class AbstractFromInfo<T, U>
+{
+    public abstract CriteriaBuilder getCriteriaBuilder();
+
+    public abstract From<?, U> getFrom();
+
+    public abstract void addPredicate(Predicate predicate);
+
+    /**
+     * OR-s the predicate with the last one added.
+     */
+    abstract void addAlternative(Predicate predicate);
+
+    abstract <V> Expression<V> valueOf(Class<V> type, V value);
+
+    abstract <V> Expression<V> valueOf(Class<V> type, V value, ValueFormat format);
+
+    abstract <V> Expression<?>[] valuesOf(Class<V> type, Collection<? extends V> values);
+
+    abstract void addIn(Expression<?> expression, Collection<?> values);
+
+    /**
+     * Bounds the attribute for the detection of contradictions; either bound may be null.
+     */
+    abstract void addRange(Path<?> path, Object lowest, Object highest);
+
+    abstract void addShape(String shape);
+
+    /**
+     * Records a criterion given no value, which has no parameter for a template to bind.
+     */
+    abstract void addUnboundValue();
+
+    /**
+     * Subquery whose {@code end()} returns the given parent.
+     */
+    abstract <S, P> SubqueryInfo<T, S, P> subquery(Class<S> entityClass, SingularAttribute<S, ?> selected, P parent);
+}
@@ -0,0 +1,267 @@
+package com.quintech.criteria;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.persistence.FlushModeType;
+import javax.persistence.LockModeType;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+
+import com.quintech.criteria.JoinInfo.AndInfo;
+
+/**
+ * Entity of a query other than its root. Settings and terminals are those of the root query; the settings return the
+ * entity they were called on, of type I, so that its criteria can go on.
+ */
+abstract class AbstractJoinInfo<T, J, I extends AbstractJoinInfo<T, J, I>> extends AbstractNestedInfo<T, J> implements
+    FromInfo<T, J>
+{
+    protected AbstractJoinInfo(RootInfo<T> mainFrom)
+    {
+        super(mainFrom);
+    }
+
+    @SuppressWarnings("unchecked")
+    private I self()
+    {
+        return (I) this;
+    }
+
+    public <V> RootFieldCriteria<T, J> with(SingularAttribute<J, ? extends V> field)
+    {
+        return new RootFieldCriteria<T, J>(this, field);
+    }
+
+    public <V> RootFieldCriteria<T, J> and(SingularAttribute<J, ? extends V> field)
+    {
+        return with(field);
+    }
+
+    public <V> RootFieldCriteria<T, J> or(SingularAttribute<J, ? extends V> field)
+    {
+        return new RootFieldCriteria<T, J>(this, field, true);
+    }
+
+    public I batchSize(int rows)
+    {
+        this.mainFrom.batchSize(rows);
+        return self();
+    }
+
+    public I inChunksOf(int size)
+    {
+        this.mainFrom.inChunksOf(size);
+        return self();
+    }
+
+    public I inParallel(ExecutorService executor)
+    {
+        this.mainFrom.inParallel(executor);
+        return self();
+    }
+
+    public I fetchSize(int rows)
+    {
+        this.mainFrom.fetchSize(rows);
+        return self();
+    }
+
+    public I timeout(int milliseconds)
+    {
+        this.mainFrom.timeout(milliseconds);
+        return self();
+    }
+
+    public I flushMode(FlushModeType flushMode)
+    {
+        this.mainFrom.flushMode(flushMode);
+        return self();
+    }
+
+    public I readOnly()
+    {
+        this.mainFrom.readOnly();
+        return self();
+    }
+
+    public I lockMode(LockModeType lockMode)
+    {
+        this.mainFrom.lockMode(lockMode);
+        return self();
+    }
+
+    public I fetch(SingularAttribute<? super T, ?> attribute)
+    {
+        this.mainFrom.fetch(attribute);
+        return self();
+    }
+
+    public I fetch(PluralAttribute<? super T, ?, ?> attribute)
+    {
+        this.mainFrom.fetch(attribute);
+        return self();
+    }
+
+    public PredicateGroup<T, J, I> anyOf()
+    {
+        return new PredicateGroup<T, J, I>(this.mainFrom, this, self(), true);
+    }
+
+    public PredicateGroup<T, J, I> allOf()
+    {
+        return new PredicateGroup<T, J, I>(this.mainFrom, this, self(), false);
+    }
+
+    public <S> SubqueryInfo.CorrelationInfo<T, J, S, I> whereExists(Class<S> entityClass)
+    {
+        return new SubqueryInfo.CorrelationInfo<T, J, S, I>(this, self(), entityClass, true);
+    }
+
+    public <S> SubqueryInfo.CorrelationInfo<T, J, S, I> whereNotExists(Class<S> entityClass)
+    {
+        return new SubqueryInfo.CorrelationInfo<T, J, S, I>(this, self(), entityClass, false);
+    }
+
+    public <K> AndInfo<T, K> andFrom(Class<K> joinClass)
+    {
+        return new AndInfo<T, K>(this.mainFrom, joinClass);
+    }
+
+    public <K> AssociationInfo<T, K> join(SingularAttribute<? super T, K> attribute)
+    {
+        return this.mainFrom.join(attribute);
+    }
+
+    public <K> AssociationInfo<T, K> join(PluralAttribute<? super T, ?, K> attribute)
+    {
+        return this.mainFrom.join(attribute);
+    }
+
+    public <K> AssociationInfo<T, K> leftJoin(SingularAttribute<? super T, K> attribute)
+    {
+        return this.mainFrom.leftJoin(attribute);
+    }
+
+    public <K> AssociationInfo<T, K> leftJoin(PluralAttribute<? super T, ?, K> attribute)
+    {
+        return this.mainFrom.leftJoin(attribute);
+    }
+
+    public List<T> resultList()
+    {
+        return this.mainFrom.resultList();
+    }
+
+    public T singleResult()
+    {
+        return this.mainFrom.singleResult();
+    }
+
+    public List<T> findAll(Collection<?> ids)
+    {
+        return this.mainFrom.findAll(ids);
+    }
+
+    public List<T> limit(int maxResults)
+    {
+        return this.mainFrom.limit(maxResults);
+    }
+
+    public List<T> page(int offset, int size)
+    {
+        return this.mainFrom.page(offset, size);
+    }
+
+    public Projection<T> select(SingularAttribute<?, ?>... attributes)
+    {
+        return this.mainFrom.select(attributes);
+    }
+
+    public long count()
+    {
+        return this.mainFrom.count();
+    }
+
+    public Aggregation<T> groupBy(SingularAttribute<?, ?>... attributes)
+    {
+        return this.mainFrom.groupBy(attributes);
+    }
+
+    public <N extends Number> N sum(SingularAttribute<?, N> attribute)
+    {
+        return this.mainFrom.sum(attribute);
+    }
+
+    public <N extends Number> Double avg(SingularAttribute<?, N> attribute)
+    {
+        return this.mainFrom.avg(attribute);
+    }
+
+    public <V extends Comparable<? super V>> V min(SingularAttribute<?, V> attribute)
+    {
+        return this.mainFrom.min(attribute);
+    }
+
+    public <V extends Comparable<? super V>> V max(SingularAttribute<?, V> attribute)
+    {
+        return this.mainFrom.max(attribute);
+    }
+
+    public Future<List<T>> resultListAsync()
+    {
+        return this.mainFrom.resultListAsync();
+    }
+
+    public Future<T> singleResultAsync()
+    {
+        return this.mainFrom.singleResultAsync();
+    }
+
+    public Future<Long> countAsync()
+    {
+        return this.mainFrom.countAsync();
+    }
+
+    public boolean exists()
+    {
+        return this.mainFrom.exists();
+    }
+
+    public QueryTemplate<T> compile()
+    {
+        return this.mainFrom.compile();
+    }
+
+    public ResultIterator<T> resultIterator()
+    {
+        return this.mainFrom.resultIterator();
+    }
+
+    public long forEach(ResultHandler<? super T> handler)
+    {
+        return this.mainFrom.forEach(handler);
+    }
+
+    public long parallelScan(int partitions, ResultHandler<? super T> handler)
+    {
+        return this.mainFrom.parallelScan(partitions, handler);
+    }
+
+    public Page<T> firstPage(int size)
+    {
+        return this.mainFrom.firstPage(size);
+    }
+
+    public Page<T> pageAfter(Page<T> previous)
+    {
+        return this.mainFrom.pageAfter(previous);
+    }
+
+    public Page<T> pageAfter(T lastRow, int size)
+    {
+        return this.mainFrom.pageAfter(lastRow, size);
+    }
+}
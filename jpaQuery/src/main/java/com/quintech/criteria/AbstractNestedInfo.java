@@ -0,0 +1,67 @@
+package com.quintech.criteria;
+
+import java.util.Collection;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Entity other than the root, whose parameters, constraints and shape are those of the root query.
+ */
+abstract class AbstractNestedInfo<T, U> extends AbstractFromInfo<T, U>
+{
+    protected final RootInfo<T> mainFrom;
+
+    protected AbstractNestedInfo(RootInfo<T> mainFrom)
+    {
+        super();
+        this.mainFrom = mainFrom;
+    }
+
+    public CriteriaBuilder getCriteriaBuilder()
+    {
+        return this.mainFrom.getCriteriaBuilder();
+    }
+
+    <V> Expression<V> valueOf(Class<V> type, V value)
+    {
+        return this.mainFrom.valueOf(type, value);
+    }
+
+    <V> Expression<V> valueOf(Class<V> type, V value, ValueFormat format)
+    {
+        return this.mainFrom.valueOf(type, value, format);
+    }
+
+    <V> Expression<?>[] valuesOf(Class<V> type, Collection<? extends V> values)
+    {
+        return this.mainFrom.valuesOf(type, values);
+    }
+
+    void addIn(Expression<?> expression, Collection<?> values)
+    {
+        this.mainFrom.addIn(this, expression, values);
+    }
+
+    void addRange(Path<?> path, Object lowest, Object highest)
+    {
+        this.mainFrom.addRange(path, lowest, highest);
+    }
+
+    void addShape(String shape)
+    {
+        this.mainFrom.addShape(shape);
+    }
+
+    void addUnboundValue()
+    {
+        this.mainFrom.addUnboundValue();
+    }
+
+    <S, P> SubqueryInfo<T, S, P> subquery(Class<S> entityClass, SingularAttribute<S, ?> selected, P parent)
+    {
+        return new SubqueryInfo<T, S, P>(this.mainFrom, entityClass, selected, parent);
+    }
+}
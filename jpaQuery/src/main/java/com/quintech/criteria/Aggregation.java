@@ -0,0 +1,192 @@
+package com.quintech.criteria;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Aggregates computed by the database for each group of rows matching the criteria of the query. Rows hold the grouping
+ * attributes followed by the aggregates, in the order they were added.
+ */
+public final class Aggregation<T>
+{
+    private final RootInfo<T> rootInfo;
+    private final List<Path<?>> grouping;
+    private final List<Expression<?>> aggregates = new ArrayList<Expression<?>>();
+    private final List<Predicate> having = new ArrayList<Predicate>();
+
+    public static final class Having<T>
+    {
+        private final Aggregation<T> aggregation;
+        private final Expression<?> aggregate;
+
+        private Having(Aggregation<T> aggregation, Expression<?> aggregate)
+        {
+            super();
+            this.aggregation = aggregation;
+            this.aggregate = aggregate;
+        }
+
+        public <V> Aggregation<T> equalTo(V value)
+        {
+            return this.aggregation.addHaving(getCriteriaBuilder().equal(this.aggregate, valueOf(value)));
+        }
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        public <V extends Comparable<? super V>> Aggregation<T> notLessThan(V value)
+        {
+            return this.aggregation.addHaving(getCriteriaBuilder().greaterThanOrEqualTo((Expression) this.aggregate,
+                (Expression) valueOf(value)));
+        }
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        public <V extends Comparable<? super V>> Aggregation<T> notGreaterThan(V value)
+        {
+            return this.aggregation.addHaving(getCriteriaBuilder().lessThanOrEqualTo((Expression) this.aggregate,
+                (Expression) valueOf(value)));
+        }
+
+        @SuppressWarnings("unchecked")
+        private Expression<?> valueOf(Object value)
+        {
+            return this.aggregation.rootInfo.valueOf((Class<Object>) this.aggregate.getJavaType(), value);
+        }
+
+        private CriteriaBuilder getCriteriaBuilder()
+        {
+            return this.aggregation.rootInfo.getCriteriaBuilder();
+        }
+    }
+
+    protected Aggregation(RootInfo<T> rootInfo, List<Path<?>> grouping)
+    {
+        super();
+        this.rootInfo = rootInfo;
+        this.grouping = grouping;
+    }
+
+    public Aggregation<T> count()
+    {
+        return addAggregate(getCriteriaBuilder().count(this.rootInfo.getFrom()));
+    }
+
+    public Aggregation<T> countDistinct(SingularAttribute<?, ?> attribute)
+    {
+        return addAggregate(getCriteriaBuilder().countDistinct(this.rootInfo.pathOf(attribute)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <N extends Number> Aggregation<T> sum(SingularAttribute<?, N> attribute)
+    {
+        return addAggregate(getCriteriaBuilder().sum((Expression<N>) this.rootInfo.pathOf(attribute)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <N extends Number> Aggregation<T> avg(SingularAttribute<?, N> attribute)
+    {
+        return addAggregate(getCriteriaBuilder().avg((Expression<N>) this.rootInfo.pathOf(attribute)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V extends Comparable<? super V>> Aggregation<T> min(SingularAttribute<?, V> attribute)
+    {
+        return addAggregate(getCriteriaBuilder().least((Expression<V>) this.rootInfo.pathOf(attribute)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V extends Comparable<? super V>> Aggregation<T> max(SingularAttribute<?, V> attribute)
+    {
+        return addAggregate(getCriteriaBuilder().greatest((Expression<V>) this.rootInfo.pathOf(attribute)));
+    }
+
+    /**
+     * Filters the groups on the last aggregate added.
+     */
+    public Having<T> having()
+    {
+        if (this.aggregates.isEmpty())
+        {
+            throw new IllegalStateException("having() must follow an aggregate");
+        }
+        return new Having<T>(this, this.aggregates.get(this.aggregates.size() - 1));
+    }
+
+    public List<Object[]> resultList()
+    {
+        return aggregate(getCriteriaBuilder().array(getSelections()));
+    }
+
+    public List<Tuple> tupleList()
+    {
+        return aggregate(getCriteriaBuilder().tuple(getSelections()));
+    }
+
+    public <D> List<D> resultList(Class<D> resultClass)
+    {
+        return aggregate(getCriteriaBuilder().construct(resultClass, getSelections()));
+    }
+
+    /**
+     * Aggregate of each group by grouping value, in the order of the query.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> resultMap()
+    {
+        if (this.grouping.size() != 1 || this.aggregates.size() != 1)
+        {
+            throw new IllegalStateException("A map needs exactly one grouping attribute and one aggregate");
+        }
+        List<Object[]> rows = resultList();
+        Map<K, V> results = new LinkedHashMap<K, V>(rows.size() * 4 / 3 + 1);
+        for (Object[] row : rows)
+        {
+            results.put((K) row[0], (V) row[1]);
+        }
+        return results;
+    }
+
+    private Aggregation<T> addAggregate(Expression<?> aggregate)
+    {
+        this.aggregates.add(aggregate);
+        return this;
+    }
+
+    private Aggregation<T> addHaving(Predicate predicate)
+    {
+        this.having.add(predicate);
+        return this;
+    }
+
+    private <R> List<R> aggregate(Selection<R> selection)
+    {
+        return this.rootInfo.aggregate(selection, this.grouping, this.having);
+    }
+
+    private Selection<?>[] getSelections()
+    {
+        Selection<?>[] selections = new Selection<?>[this.grouping.size() + this.aggregates.size()];
+        for (int i = 0; i < this.grouping.size(); i++)
+        {
+            selections[i] = this.grouping.get(i);
+        }
+        for (int i = 0; i < this.aggregates.size(); i++)
+        {
+            selections[this.grouping.size() + i] = this.aggregates.get(i);
+        }
+        return selections;
+    }
+
+    private CriteriaBuilder getCriteriaBuilder()
+    {
+        return this.rootInfo.getCriteriaBuilder();
+    }
+}
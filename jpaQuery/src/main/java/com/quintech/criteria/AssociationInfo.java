@@ -0,0 +1,68 @@
+package com.quintech.criteria;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Entity joined to the root through a mapped association. JPA 2.0 has no ON clause, so predicates added to a left
+ * joined entity are part of the WHERE clause.
+ */
+public final class AssociationInfo<T, J> extends AbstractJoinInfo<T, J, AssociationInfo<T, J>>
+{
+    private final Join<T, J> join;
+    private final List<Predicate> predicates = new ArrayList<Predicate>();
+    private final List<Order> orderBys = new ArrayList<Order>();
+
+    protected AssociationInfo(RootInfo<T> mainFrom, Join<T, J> join)
+    {
+        super(mainFrom);
+        this.join = join;
+        mainFrom.addJoin(this);
+    }
+
+    public Join<T, J> getFrom()
+    {
+        return this.join;
+    }
+
+    public void addPredicate(Predicate predicate)
+    {
+        if (predicate != null)
+        {
+            this.predicates.add(predicate);
+        }
+    }
+
+    void addAlternative(Predicate predicate)
+    {
+        this.mainFrom.abandonConstraints(RootInfo.orWithLast(getCriteriaBuilder(), this.predicates, predicate));
+    }
+
+    public List<Predicate> getPredicates()
+    {
+        return Collections.unmodifiableList(this.predicates);
+    }
+
+    public List<Order> getOrderBys()
+    {
+        return Collections.unmodifiableList(this.orderBys);
+    }
+
+    public <V> AssociationInfo<T, J> descendingBy(SingularAttribute<J, ? extends V> field)
+    {
+        this.orderBys.add(getCriteriaBuilder().desc(this.join.get(field)));
+        return this;
+    }
+
+    public <V> AssociationInfo<T, J> ascendingBy(SingularAttribute<J, ? extends V> field)
+    {
+        this.orderBys.add(getCriteriaBuilder().asc(this.join.get(field)));
+        return this;
+    }
+}
@@ -0,0 +1,61 @@
+package com.quintech.criteria;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Terminals run on an executor, each with its own EntityManager from the factory, closed when the terminal completes,
+ * so the returned entities are detached.
+ */
+final class AsyncExecution
+{
+    private static final ThreadLocal<EntityManager> ASYNC_EM = new ThreadLocal<EntityManager>();
+
+    private AsyncExecution()
+    {
+        super();
+    }
+
+    /**
+     * EntityManager of the asynchronous terminal running on this thread, if any.
+     */
+    static EntityManager getEntityManager()
+    {
+        return ASYNC_EM.get();
+    }
+
+    /**
+     * Terminals submitted with the same lock run one at a time.
+     */
+    static <R> Future<R> submit(final Object lock, final EntityManagerFactory factory, Executor executor,
+        final Callable<R> terminal)
+    {
+        FutureTask<R> task = new FutureTask<R>(new Callable<R>()
+        {
+            public R call() throws Exception
+            {
+                EntityManager asyncEm = factory.createEntityManager();
+                ASYNC_EM.set(asyncEm);
+                try
+                {
+                    synchronized (lock)
+                    {
+                        return terminal.call();
+                    }
+                }
+                finally
+                {
+                    ASYNC_EM.remove();
+                    asyncEm.close();
+                }
+            }
+        });
+        executor.execute(task);
+        return task;
+    }
+}
@@ -0,0 +1,132 @@
+package com.quintech.criteria;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Fetch;
+import javax.persistence.criteria.FetchParent;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.PluralAttribute;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.persistence.criteria.OpenJPACriteriaQuery;
+
+/**
+ * Terminals of a cacheable query looked up in the QueryCache, keyed by the query and evicted by writes to any of its
+ * entities.
+ */
+final class CacheLookup<T>
+{
+    private final RootInfo<T> rootInfo;
+    private final QueryCache cache;
+    private final long ttlNanos;
+
+    CacheLookup(RootInfo<T> rootInfo, QueryCache cache, long ttlNanos)
+    {
+        super();
+        this.rootInfo = rootInfo;
+        this.cache = cache;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * The key is the query text with the current predicates and order, the values bound to its parameters, the hints,
+     * the prefetched collections and the terminal with its arguments.
+     */
+    <R> R get(Selection<?> selection, final Callable<R> loader, Object... terminal)
+    {
+        CriteriaQuery<Object> criteria = this.rootInfo.buildCriteria(this.rootInfo.getAllPredicates(),
+            this.rootInfo.getAllOrderBys());
+        criteria.select(selection);
+        List<Object> key = new ArrayList<Object>();
+        key.add(criteria instanceof OpenJPACriteriaQuery ? ((OpenJPACriteriaQuery<?>) criteria).toCQL() : criteria);
+        for (ParameterBinding binding : this.rootInfo.getBindings())
+        {
+            key.add(binding.getValue());
+        }
+        key.addAll(this.rootInfo.getHints().toKey());
+        for (PluralAttribute<? super T, ?, ?> attribute : this.rootInfo.getPrefetches())
+        {
+            key.add(attribute.getName());
+        }
+        key.addAll(Arrays.asList(terminal));
+
+        final boolean[] loaded = new boolean[1];
+        R result = this.cache.get(key, getEntityTypes(criteria), this.ttlNanos, new Callable<R>()
+        {
+            public R call() throws Exception
+            {
+                loaded[0] = true;
+                return loader.call();
+            }
+        });
+        if (!loaded[0])
+        {
+            this.rootInfo.publish(QueryEvent.Type.CACHE_HIT, (String) terminal[0], 0, 0, 0, null, null);
+        }
+        return result;
+    }
+
+    List<T> detachCopies(List<T> results)
+    {
+        OpenJPAEntityManager openJpaEm = OpenJPAPersistence.cast(this.rootInfo.getEntityManager());
+        List<T> copies = new ArrayList<T>(results.size());
+        for (T result : results)
+        {
+            copies.add(openJpaEm.isDetached(result) ? result : openJpaEm.detachCopy(result));
+        }
+        return copies;
+    }
+
+    private Set<Class<?>> getEntityTypes(CriteriaQuery<Object> criteria)
+    {
+        Set<Class<?>> entityTypes = new HashSet<Class<?>>();
+        for (Root<?> root : criteria.getRoots())
+        {
+            entityTypes.add(root.getJavaType());
+            addEntityTypes(entityTypes, root);
+        }
+        for (Root<?> root : this.rootInfo.getSubqueryRoots())
+        {
+            entityTypes.add(root.getJavaType());
+            addEntityTypes(entityTypes, root);
+        }
+        return entityTypes;
+    }
+
+    private void addEntityTypes(Set<Class<?>> entityTypes, FetchParent<?, ?> parent)
+    {
+        for (Fetch<?, ?> fetch : parent.getFetches())
+        {
+            entityTypes.add(getEntityType(fetch.getAttribute()));
+            addEntityTypes(entityTypes, fetch);
+        }
+        if (parent instanceof From)
+        {
+            for (Join<?, ?> join : ((From<?, ?>) parent).getJoins())
+            {
+                entityTypes.add(getEntityType(join.getAttribute()));
+                addEntityTypes(entityTypes, join);
+            }
+        }
+    }
+
+    private Class<?> getEntityType(Attribute<?, ?> attribute)
+    {
+        if (attribute instanceof PluralAttribute)
+        {
+            return ((PluralAttribute<?, ?, ?>) attribute).getElementType().getJavaType();
+        }
+        return attribute.getJavaType();
+    }
+}
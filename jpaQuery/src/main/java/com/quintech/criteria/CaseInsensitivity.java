@@ -0,0 +1,90 @@
+package com.quintech.criteria;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * How the ignore case predicates compare a string attribute. By default both the column and the value are upper
+ * cased, which keeps the database from using an index on the column. An attribute whose column has a case
+ * insensitive collation can be compared as is, and an attribute with an upper cased shadow attribute, kept up to
+ * date by the entity, can be compared through the shadow; equalToIgnoreCase and startsWithIgnoreCase can then use
+ * an index.
+ */
+public final class CaseInsensitivity
+{
+    private static final CaseInsensitivity UPPER_CASE = new CaseInsensitivity(null, true);
+    private static final CaseInsensitivity COLLATION = new CaseInsensitivity(null, false);
+    private static final ConcurrentMap<String, CaseInsensitivity> STRATEGIES =
+        new ConcurrentHashMap<String, CaseInsensitivity>();
+
+    private final String shadow;
+    private final boolean upperCase;
+
+    private CaseInsensitivity(String shadow, boolean upperCase)
+    {
+        super();
+        this.shadow = shadow;
+        this.upperCase = upperCase;
+    }
+
+    public static void byUpperCase(SingularAttribute<?, String> attribute)
+    {
+        STRATEGIES.remove(keyOf(attribute));
+    }
+
+    public static void byCollation(SingularAttribute<?, String> attribute)
+    {
+        STRATEGIES.put(keyOf(attribute), COLLATION);
+    }
+
+    public static <X> void byShadow(SingularAttribute<X, String> attribute, SingularAttribute<X, String> upperCased)
+    {
+        STRATEGIES.put(keyOf(attribute), new CaseInsensitivity(upperCased.getName(), true));
+    }
+
+    /**
+     * Metamodel attributes are replaced whenever a factory is created, so strategies are kept by name.
+     */
+    private static String keyOf(Attribute<?, ?> attribute)
+    {
+        return attribute.getDeclaringType().getJavaType().getName() + "." + attribute.getName();
+    }
+
+    static CaseInsensitivity of(Attribute<?, ?> attribute)
+    {
+        CaseInsensitivity strategy = STRATEGIES.get(keyOf(attribute));
+        return strategy != null ? strategy : UPPER_CASE;
+    }
+
+    Expression<String> compared(CriteriaBuilder builder, Path<String> path)
+    {
+        if (this.shadow != null)
+        {
+            return path.getParentPath().get(this.shadow);
+        }
+        return this.upperCase ? builder.upper(path) : path;
+    }
+
+    ValueFormat format(ValueFormat format)
+    {
+        if (!this.upperCase)
+        {
+            return format;
+        }
+        switch (format)
+        {
+            case STARTS_WITH:
+                return ValueFormat.STARTS_WITH_UPPER_CASE;
+            case CONTAINS:
+                return ValueFormat.CONTAINS_UPPER_CASE;
+            default:
+                return ValueFormat.UPPER_CASE;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.quintech.criteria;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+/**
+ * List, count and exists terminals of a query whose IN list is split into chunks, run one query per chunk, one after
+ * the other or on the executor given to {@link RootInfo#inParallel}.
+ */
+final class ChunkedExecution<T>
+{
+    private final RootInfo<T> rootInfo;
+    private final InChunks inChunks;
+    private final ExecutorService executor;
+
+    ChunkedExecution(RootInfo<T> rootInfo, InChunks inChunks, ExecutorService executor)
+    {
+        super();
+        this.rootInfo = rootInfo;
+        this.inChunks = inChunks;
+        this.executor = executor;
+    }
+
+    long count()
+    {
+        if (!this.rootInfo.isDistinct())
+        {
+            long rows = 0;
+            Selection<?>[] count = { this.rootInfo.getCriteriaBuilder().count(this.rootInfo.getFrom()) };
+            for (List<Object> chunkRows : executeChunks(count, Collections.<Order> emptyList(), 0))
+            {
+                rows += ((Number) chunkRows.get(0)).longValue();
+            }
+            return rows;
+        }
+
+        Set<Object> ids = new HashSet<Object>();
+        for (List<Object> chunkRows : executeChunks(selectId(), Collections.<Order> emptyList(), 0))
+        {
+            ids.addAll(chunkRows);
+        }
+        return ids.size();
+    }
+
+    boolean exists()
+    {
+        for (List<Object> rows : executeChunks(selectId(), Collections.<Order> emptyList(), 1))
+        {
+            if (!rows.isEmpty())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Selection<?>[] selectId()
+    {
+        Root<T> root = this.rootInfo.getFrom();
+        return new Selection<?>[] { root.get(this.rootInfo.getIdAttribute(root)) };
+    }
+
+    /**
+     * Chunks are queried in order and merged, then sorted again on the order by keys and de-duplicated by identifier
+     * when the query is distinct or fetches a collection. Keys that are attributes of the root are read from the
+     * entities; other keys are selected along with them. When only the first rows are needed, and rows are not
+     * de-duplicated, each chunk returns at most that many rows and unordered chunks stop once there are enough.
+     */
+    @SuppressWarnings("unchecked")
+    List<T> resultList(int firstRows)
+    {
+        List<Order> allOrderBys = this.rootInfo.getAllOrderBys();
+        boolean selectKeys = false;
+        for (Order orderBy : allOrderBys)
+        {
+            selectKeys |= !this.rootInfo.isRootAttribute(orderBy.getExpression());
+        }
+        Selection<?>[] selections = new Selection<?>[selectKeys ? allOrderBys.size() + 1 : 1];
+        selections[0] = this.rootInfo.getFrom();
+        for (int i = 1; i < selections.length; i++)
+        {
+            selections[i] = allOrderBys.get(i - 1).getExpression();
+        }
+
+        boolean deduplicate = this.rootInfo.isDistinct() || this.rootInfo.fetchesCollection();
+        List<Object> rows = new ArrayList<Object>();
+        for (List<Object> chunkRows : executeChunks(selections, allOrderBys, deduplicate ? 0 : firstRows))
+        {
+            rows.addAll(chunkRows);
+        }
+        if (!allOrderBys.isEmpty())
+        {
+            if (!selectKeys)
+            {
+                for (int i = 0; i < rows.size(); i++)
+                {
+                    Object[] row = new Object[allOrderBys.size() + 1];
+                    row[0] = rows.get(i);
+                    for (int j = 0; j < allOrderBys.size(); j++)
+                    {
+                        row[j + 1] = this.rootInfo.readSortKey((T) row[0], allOrderBys.get(j).getExpression());
+                    }
+                    rows.set(i, row);
+                }
+            }
+            InChunks.sort(rows, allOrderBys, NullOrdering.of(this.rootInfo.getEntityManagerFactory()));
+        }
+
+        PersistenceUnitUtil persistenceUtil = this.rootInfo.getEntityManagerFactory().getPersistenceUnitUtil();
+        Set<Object> ids = new HashSet<Object>();
+        List<T> results = new ArrayList<T>(rows.size());
+        for (Object row : rows)
+        {
+            T entity = (T) (allOrderBys.isEmpty() ? row : ((Object[]) row)[0]);
+            if (!deduplicate || ids.add(persistenceUtil.getIdentifier(entity)))
+            {
+                results.add(entity);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Results of each chunk, with at most maxResults rows when positive. Chunks run one after the other stop once
+     * unordered results hold maxResults rows.
+     */
+    private List<List<Object>> executeChunks(final Selection<?>[] selections, final List<Order> orders,
+        final int maxResults)
+    {
+        int chunks = this.inChunks.getChunkCount();
+        if (this.executor == null)
+        {
+            List<List<Object>> results = new ArrayList<List<Object>>(chunks);
+            long rows = 0;
+            for (int i = 0; i < chunks && (maxResults <= 0 || !orders.isEmpty() || rows < maxResults); i++)
+            {
+                List<Object> chunkRows = executeChunk(this.rootInfo.getEntityManager(), i, selections, orders,
+                    maxResults);
+                rows += chunkRows.size();
+                results.add(chunkRows);
+            }
+            return results;
+        }
+
+        final EntityManagerFactory emf = this.rootInfo.getEntityManager().getEntityManagerFactory();
+        List<Future<List<Object>>> futures = new ArrayList<Future<List<Object>>>(chunks);
+        for (int i = 0; i < chunks; i++)
+        {
+            final int chunk = i;
+            futures.add(this.executor.submit(new Callable<List<Object>>()
+            {
+                public List<Object> call()
+                {
+                    EntityManager chunkEm = emf.createEntityManager();
+                    try
+                    {
+                        return executeChunk(chunkEm, chunk, selections, orders, maxResults);
+                    }
+                    finally
+                    {
+                        chunkEm.close();
+                    }
+                }
+            }));
+        }
+        return awaitAll(futures, "IN list chunks");
+    }
+
+    private List<Object> executeChunk(EntityManager chunkEm, int chunk, Selection<?>[] selections,
+        List<Order> orders, int maxResults)
+    {
+        long started = System.nanoTime();
+        TypedQuery<Object> query;
+        synchronized (this.rootInfo.getCriteria())
+        {
+            List<Predicate> allPredicates = this.rootInfo.getFilterPredicates();
+            allPredicates.add(this.inChunks.getPredicate(this.rootInfo.getCriteriaBuilder(), chunk));
+            CriteriaQuery<Object> chunkCriteria = this.rootInfo.buildCriteria(allPredicates, orders);
+            if (selections.length == 1)
+            {
+                chunkCriteria.select(selections[0]);
+            }
+            else
+            {
+                chunkCriteria.multiselect(selections);
+            }
+            query = this.rootInfo.createCompiledQuery(chunkEm, chunkCriteria);
+            this.inChunks.bind(query, chunk);
+        }
+        if (maxResults > 0)
+        {
+            query.setMaxResults(maxResults);
+        }
+        return this.rootInfo.execute("chunk", query, started);
+    }
+
+    /**
+     * Waits for all the futures; on the first failure the others are cancelled and the cause is rethrown.
+     */
+    static <R> List<R> awaitAll(List<Future<R>> futures, String description)
+    {
+        List<R> results = new ArrayList<R>(futures.size());
+        try
+        {
+            for (Future<R> future : futures)
+            {
+                results.add(future.get());
+            }
+            return results;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while waiting for " + description, e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new PersistenceException(e.getCause());
+        }
+        finally
+        {
+            for (Future<R> future : futures)
+            {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.quintech.criteria;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+
+/**
+ * Tracks the ranges that the criteria allow for each attribute to detect queries that cannot return any row. The order
+ * of strings depends on the collation of the database, so only their equalities are tracked, compared ignoring case so
+ * that a case insensitive collation never turns a match into a contradiction.
+ */
+final class Constraints
+{
+    private Map<Object, Comparable<?>[]> ranges;
+    private List<Predicate> never;
+    private boolean unsatisfiable;
+    private boolean abandoned;
+
+    /**
+     * Records a predicate that matches no row, such as an empty IN list.
+     */
+    void never(Predicate predicate)
+    {
+        if (this.never == null)
+        {
+            this.never = new ArrayList<Predicate>(1);
+        }
+        this.never.add(predicate);
+    }
+
+    boolean isUnsatisfiable()
+    {
+        return this.unsatisfiable || (this.never != null && !this.never.isEmpty());
+    }
+
+    /**
+     * Once a predicate is OR-ed with another one its range no longer bounds the attribute, so ranges are not tracked
+     * anymore. Predicates that match no row still make the query unsatisfiable unless they are the one replaced.
+     */
+    void abandon(Predicate replaced)
+    {
+        this.abandoned = true;
+        this.unsatisfiable = false;
+        this.ranges = null;
+        if (this.never != null)
+        {
+            for (int i = this.never.size() - 1; i >= 0; i--)
+            {
+                if (this.never.get(i) == replaced)
+                {
+                    this.never.remove(i);
+                }
+            }
+        }
+    }
+
+    void addRange(Path<?> path, Object lowest, Object highest)
+    {
+        if (this.abandoned)
+        {
+            return;
+        }
+        if ((lowest != null && !(lowest instanceof Comparable))
+            || (highest != null && !(highest instanceof Comparable)))
+        {
+            return;
+        }
+        if ((lowest instanceof String || highest instanceof String) && lowest != highest)
+        {
+            return;
+        }
+
+        if (this.ranges == null)
+        {
+            this.ranges = new HashMap<Object, Comparable<?>[]>(4);
+        }
+        Object key = keyOf(path);
+        Comparable<?>[] range = this.ranges.get(key);
+        if (range == null)
+        {
+            range = new Comparable<?>[2];
+            this.ranges.put(key, range);
+        }
+        try
+        {
+            if (lowest != null && (range[0] == null || compare(lowest, range[0]) > 0))
+            {
+                range[0] = (Comparable<?>) lowest;
+            }
+            if (highest != null && (range[1] == null || compare(highest, range[1]) < 0))
+            {
+                range[1] = (Comparable<?>) highest;
+            }
+            if (range[0] != null && range[1] != null && compare(range[0], range[1]) > 0)
+            {
+                this.unsatisfiable = true;
+            }
+        }
+        catch (ClassCastException e)
+        {
+            this.ranges.remove(key);
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static int compare(Object left, Object right)
+    {
+        if (left instanceof String && right instanceof String)
+        {
+            return String.CASE_INSENSITIVE_ORDER.compare((String) left, (String) right);
+        }
+        return ((Comparable) left).compareTo(right);
+    }
+
+    private static Object keyOf(Path<?> path)
+    {
+        if (path instanceof From || path.getParentPath() == null)
+        {
+            return path;
+        }
+        return new Key(keyOf(path.getParentPath()), path.getModel());
+    }
+
+    /**
+     * Attribute of a parent path; paths are created anew for each predicate, so they are compared structurally.
+     */
+    private static final class Key
+    {
+        private final Object parent;
+        private final Object model;
+
+        Key(Object parent, Object model)
+        {
+            this.parent = parent;
+            this.model = model;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof Key && ((Key) other).parent.equals(this.parent)
+                && ((Key) other).model.equals(this.model);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * this.parent.hashCode() + this.model.hashCode();
+        }
+    }
+}
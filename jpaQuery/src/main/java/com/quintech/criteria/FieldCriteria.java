@@ -0,0 +1,266 @@
+package com.quintech.criteria;
+
+import java.util.Collection;
+
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Predicates on an attribute of an entity, each returning the R they were added to so that its criteria can go on.
+ */
+abstract class FieldCriteria<T, U, R>
+{
+    private final AbstractFromInfo<T, U> from;
+    private final R result;
+    private final SingularAttribute<U, ?> field;
+    private final SingularAttribute<?, ?> relatedField;
+    private final boolean alternative;
+
+    /**
+     * With alternative set, the predicate is OR-ed with the last one added instead of being AND-ed with all of them.
+     */
+    FieldCriteria(AbstractFromInfo<T, U> from, R result, SingularAttribute<U, ?> field,
+        SingularAttribute<?, ?> relatedField, boolean alternative)
+    {
+        super();
+        this.from = from;
+        this.result = result;
+        this.field = field;
+        this.relatedField = relatedField;
+        this.alternative = alternative;
+    }
+
+    public <V> R equalTo(V value)
+    {
+        if (value == null)
+        {
+            this.from.addUnboundValue();
+            addShape("IS NULL");
+            addPredicate(PredicateUtils.equalTo(this.from.getCriteriaBuilder(),
+                getField(), value));
+        }
+        else
+        {
+            addShape("=");
+            Path<?> path = getField();
+            addPredicate(PredicateUtils.equalTo(this.from.getCriteriaBuilder(),
+                path, valueOf(path, value)));
+            addRange(path, value, value);
+        }
+
+        return this.result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Expression<?> valueOf(Path<?> path, Object value)
+    {
+        return this.from.valueOf((Class<Object>) path.getJavaType(), value);
+    }
+
+    private Expression<String> valueOf(String value, ValueFormat format)
+    {
+        return this.from.valueOf(String.class, value, format);
+    }
+
+    @SuppressWarnings("unchecked")
+    private R ignoringCase(String value, ValueFormat format)
+    {
+        CaseInsensitivity caseInsensitivity = CaseInsensitivity.of(relatedField != null ? relatedField : field);
+        Expression<String> compared = caseInsensitivity.compared(this.from.getCriteriaBuilder(),
+            (Path<String>) getField());
+        ValueFormat valueFormat = caseInsensitivity.format(format);
+        if (format == ValueFormat.AS_IS)
+        {
+            addPredicate(PredicateUtils.equalTo(this.from.getCriteriaBuilder(), compared,
+                valueOf(value, valueFormat)));
+        }
+        else
+        {
+            addPredicate(PredicateUtils.like(this.from.getCriteriaBuilder(), compared,
+                valueOf(value, valueFormat)));
+        }
+
+        return this.result;
+    }
+
+    /**
+     * IN over the given attribute of the rows of a subquery, whose criteria are added to the returned entity; its
+     * {@code end()} returns what this criteria returns.
+     */
+    public <S> SubqueryInfo<T, S, R> inSubquery(Class<S> entityClass, SingularAttribute<S, ?> selected)
+    {
+        addShape("IN (SELECT " + entityClass.getSimpleName() + ")");
+        SubqueryInfo<T, S, R> subquery = this.from.subquery(entityClass, selected, this.result);
+        addPredicate(getField().in(subquery.getSubquery()));
+        return subquery;
+    }
+
+    private void addPredicate(Predicate predicate)
+    {
+        if (this.alternative && predicate != null)
+        {
+            this.from.addAlternative(predicate);
+        }
+        else
+        {
+            this.from.addPredicate(predicate);
+        }
+    }
+
+    /**
+     * Ranges of alternatives do not bound the attribute, so they are not checked for contradictions.
+     */
+    private void addRange(Path<?> path, Object lowest, Object highest)
+    {
+        if (!this.alternative)
+        {
+            this.from.addRange(path, lowest, highest);
+        }
+    }
+
+    /**
+     * Shapes feed the fingerprint of query events. They are recorded even while nobody listens, since a listener may
+     * be added before the query runs.
+     */
+    private void addShape(String operator)
+    {
+        this.from.addShape((this.alternative ? "OR " : "") + QueryFingerprint.nameOf(field)
+            + (relatedField == null ? "" : "." + relatedField.getName()) + " " + operator);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <X> Path<?> getField()
+    {
+        if (relatedField == null)
+        {
+            return this.from.getFrom().get(field);
+        }
+        return ((Path<X>) this.from.getFrom().get(field)).get((SingularAttribute<X, ?>) relatedField);
+    }
+
+    public R equalToIgnoreCase(String value)
+    {
+        addShape("= IGNORE CASE");
+        return ignoringCase(value, ValueFormat.AS_IS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public R startsWith(String value)
+    {
+        addShape("LIKE");
+        addPredicate(PredicateUtils.like(this.from.getCriteriaBuilder(),
+            (Path<String>) getField(), valueOf(value, ValueFormat.STARTS_WITH)));
+
+        return this.result;
+    }
+
+    public R startsWithIgnoreCase(String value)
+    {
+        addShape("LIKE IGNORE CASE");
+        return ignoringCase(value, ValueFormat.STARTS_WITH);
+    }
+
+    @SuppressWarnings("unchecked")
+    public R contains(String value)
+    {
+        addShape("LIKE");
+        addPredicate(PredicateUtils.like(this.from.getCriteriaBuilder(),
+            (Path<String>) getField(), valueOf(value, ValueFormat.CONTAINS)));
+
+        return this.result;
+    }
+
+    public R containsIgnoreCase(String value)
+    {
+        addShape("LIKE IGNORE CASE");
+        return ignoringCase(value, ValueFormat.CONTAINS);
+    }
+
+    public <V> R isNullOrNotLessThan(V value)
+    {
+        if (value != null)
+        {
+            addShape("IS NULL OR >=");
+            Path<?> path = getField();
+            addPredicate(PredicateUtils.isNullOrNotLessThan(this.from.getCriteriaBuilder(),
+                path, valueOf(path, value)));
+        }
+        else
+        {
+            this.from.addUnboundValue();
+        }
+
+        return this.result;
+    }
+
+    public <V> R isNullOrNotBefore(V value)
+    {
+        return isNullOrNotLessThan(value);
+    }
+
+    public <V> R notLessThan(V value)
+    {
+        if (value != null)
+        {
+            addShape(">=");
+            Path<?> path = getField();
+            addPredicate(PredicateUtils.notLessThan(this.from.getCriteriaBuilder(),
+                path, valueOf(path, value)));
+            addRange(path, value, null);
+        }
+        else
+        {
+            this.from.addUnboundValue();
+        }
+
+        return this.result;
+    }
+
+    public <V> R notBefore(V value)
+    {
+        return notLessThan(value);
+    }
+
+    public <V> R notGreaterThan(V value)
+    {
+        if (value != null)
+        {
+            addShape("<=");
+            Path<?> path = getField();
+            addPredicate(PredicateUtils.notGreaterThan(this.from.getCriteriaBuilder(),
+                path, valueOf(path, value)));
+            addRange(path, null, value);
+        }
+        else
+        {
+            this.from.addUnboundValue();
+        }
+
+        return this.result;
+    }
+
+    public <V> R notAfter(V value)
+    {
+        return notGreaterThan(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> R in(Collection<V> values)
+    {
+        addShape("IN");
+        if (this.alternative)
+        {
+            Path<?> path = getField();
+            addPredicate(PredicateUtils.in(this.from.getCriteriaBuilder(), path,
+                this.from.valuesOf((Class<Object>) path.getJavaType(), values)));
+        }
+        else
+        {
+            this.from.addIn(getField(), values);
+        }
+
+        return this.result;
+    }
+}
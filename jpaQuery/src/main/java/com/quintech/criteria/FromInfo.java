@@ -1,11 +1,17 @@
 package com.quintech.criteria;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import javax.persistence.FlushModeType;
+import javax.persistence.LockModeType;
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.From;
 import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.PluralAttribute;
 import javax.persistence.metamodel.SingularAttribute;
 
 import com.quintech.criteria.JoinInfo.AndInfo;
@@ -15,12 +21,24 @@ public interface FromInfo<T, U>
 {
     CriteriaBuilder getCriteriaBuilder();
 
-    Root<U> getFrom();
+    From<?, U> getFrom();
 
     void addPredicate(Predicate predicate);
 
     <J> AndInfo<T, J> andFrom(Class<J> joinClass);
     
+    <J> AssociationInfo<T, J> join(SingularAttribute<? super T, J> attribute);
+
+    <J> AssociationInfo<T, J> join(PluralAttribute<? super T, ?, J> attribute);
+
+    <J> AssociationInfo<T, J> leftJoin(SingularAttribute<? super T, J> attribute);
+
+    <J> AssociationInfo<T, J> leftJoin(PluralAttribute<? super T, ?, J> attribute);
+
+    FromInfo<T, U> fetch(SingularAttribute<? super T, ?> attribute);
+
+    FromInfo<T, U> fetch(PluralAttribute<? super T, ?, ?> attribute);
+
     <V> FromInfo<T, U> descendingBy(SingularAttribute<U, ? extends V> field);
 
     <V> FromInfo<T, U> ascendingBy(SingularAttribute<U, ? extends V> field);
@@ -33,5 +51,73 @@ public interface FromInfo<T, U>
 
     T singleResult();
 
+    List<T> findAll(Collection<?> ids);
+
+    List<T> limit(int maxResults);
+
+    List<T> page(int offset, int size);
+
+    Projection<T> select(SingularAttribute<?, ?>... attributes);
+
+    long count();
+
+    Aggregation<T> groupBy(SingularAttribute<?, ?>... attributes);
+
+    <N extends Number> N sum(SingularAttribute<?, N> attribute);
+
+    <N extends Number> Double avg(SingularAttribute<?, N> attribute);
+
+    <V extends Comparable<? super V>> V min(SingularAttribute<?, V> attribute);
+
+    <V extends Comparable<? super V>> V max(SingularAttribute<?, V> attribute);
+
+    Future<List<T>> resultListAsync();
+
+    Future<T> singleResultAsync();
+
+    Future<Long> countAsync();
+
+    boolean exists();
+
+    QueryTemplate<T> compile();
+
+    FromInfo<T, U> batchSize(int rows);
+
+    FromInfo<T, U> inChunksOf(int size);
+
+    FromInfo<T, U> inParallel(ExecutorService executor);
+
+    FromInfo<T, U> fetchSize(int rows);
+
+    FromInfo<T, U> timeout(int milliseconds);
+
+    FromInfo<T, U> flushMode(FlushModeType flushMode);
+
+    FromInfo<T, U> readOnly();
+
+    FromInfo<T, U> lockMode(LockModeType lockMode);
+
+    ResultIterator<T> resultIterator();
+
+    long forEach(ResultHandler<? super T> handler);
+
+    long parallelScan(int partitions, ResultHandler<? super T> handler);
+
+    Page<T> firstPage(int size);
+
+    Page<T> pageAfter(Page<T> previous);
+
+    Page<T> pageAfter(T lastRow, int size);
+
     <V> RootFieldCriteria<T, U> and(SingularAttribute<U, ? extends V> field);
+
+    <V> RootFieldCriteria<T, U> or(SingularAttribute<U, ? extends V> field);
+
+    PredicateGroup<T, U, ? extends FromInfo<T, U>> anyOf();
+
+    PredicateGroup<T, U, ? extends FromInfo<T, U>> allOf();
+
+    <S> SubqueryInfo.CorrelationInfo<T, U, S, ? extends FromInfo<T, U>> whereExists(Class<S> entityClass);
+
+    <S> SubqueryInfo.CorrelationInfo<T, U, S, ? extends FromInfo<T, U>> whereNotExists(Class<S> entityClass);
 }
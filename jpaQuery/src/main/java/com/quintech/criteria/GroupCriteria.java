@@ -0,0 +1,14 @@
+package com.quintech.criteria;
+
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Predicates on an attribute of the entity of a group, which return the group rather than the query.
+ */
+public final class GroupCriteria<T, U, P> extends FieldCriteria<T, U, PredicateGroup<T, U, P>>
+{
+    GroupCriteria(PredicateGroup<T, U, P> group, SingularAttribute<U, ?> field, boolean alternative)
+    {
+        super(group, group, field, null, alternative);
+    }
+}
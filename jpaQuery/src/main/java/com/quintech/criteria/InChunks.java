@@ -0,0 +1,142 @@
+package com.quintech.criteria;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
+
+import org.apache.commons.lang.ClassUtils;
+
+/**
+ * IN list that is too large for a single statement. Each chunk is executed as its own query; when parameterized,
+ * all chunks share the same parameters so that they also share the same query text.
+ */
+final class InChunks
+{
+    private final Expression<?> expression;
+    private final List<Object> values;
+    private final int chunkSize;
+    private final ParameterExpression<?>[] parameters;
+    private final Predicate predicate;
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    InChunks(CriteriaBuilder builder, Expression<?> expression, Collection<?> values, int chunkSize,
+        boolean parameterized)
+    {
+        super();
+        this.expression = expression;
+        this.values = new ArrayList<Object>(values);
+        this.chunkSize = chunkSize;
+        if (parameterized)
+        {
+            Class type = ClassUtils.primitiveToWrapper(expression.getJavaType());
+            this.parameters = new ParameterExpression<?>[Math.min(chunkSize, this.values.size())];
+            for (int i = 0; i < this.parameters.length; i++)
+            {
+                this.parameters[i] = builder.parameter(type, "c" + i);
+            }
+        }
+        else
+        {
+            this.parameters = null;
+        }
+        Predicate[] chunks = new Predicate[getChunkCount()];
+        for (int i = 0; i < chunks.length; i++)
+        {
+            chunks[i] = expression.in(literalsOf(builder, getChunk(i)));
+        }
+        this.predicate = builder.or(chunks);
+    }
+
+    int getChunkCount()
+    {
+        return (this.values.size() + this.chunkSize - 1) / this.chunkSize;
+    }
+
+    private List<Object> getChunk(int chunk)
+    {
+        int from = chunk * this.chunkSize;
+        return this.values.subList(from, Math.min(from + this.chunkSize, this.values.size()));
+    }
+
+    /**
+     * The whole list as one predicate, for the terminals that cannot run a query per chunk. It stands among the
+     * predicates of the entity the IN was given on, where the queries per chunk leave it out.
+     */
+    Predicate toPredicate()
+    {
+        return this.predicate;
+    }
+
+    Predicate getPredicate(CriteriaBuilder builder, int chunk)
+    {
+        if (this.parameters != null)
+        {
+            return this.expression.in((Expression<?>[]) this.parameters);
+        }
+        return this.expression.in(literalsOf(builder, getChunk(chunk)));
+    }
+
+    void bind(TypedQuery<?> query, int chunk)
+    {
+        if (this.parameters != null)
+        {
+            new ParameterBinding(this.parameters, getChunk(chunk)).bind(query);
+        }
+    }
+
+    private Expression<?>[] literalsOf(CriteriaBuilder builder, List<Object> chunk)
+    {
+        Expression<?>[] literals = new Expression<?>[chunk.size()];
+        for (int i = 0; i < literals.length; i++)
+        {
+            Object value = chunk.get(i);
+            literals[i] = value == null ? builder.nullLiteral(this.expression.getJavaType()) : builder.literal(value);
+        }
+        return literals;
+    }
+
+    /**
+     * Sorts rows of the form {entity, key1, ..., keyN} merged from several chunks. Nulls are placed as the database
+     * places them; other keys are compared in Java, so strings follow the order of a binary collation, which may differ
+     * from the one of the database.
+     */
+    static void sort(List<Object> rows, final List<Order> orders, final NullOrdering nullOrdering)
+    {
+        Collections.sort(rows, new Comparator<Object>()
+        {
+            @SuppressWarnings({ "rawtypes", "unchecked" })
+            public int compare(Object left, Object right)
+            {
+                for (int i = 0; i < orders.size(); i++)
+                {
+                    Comparable leftKey = (Comparable) ((Object[]) left)[i + 1];
+                    Comparable rightKey = (Comparable) ((Object[]) right)[i + 1];
+                    boolean ascending = orders.get(i).isAscending();
+                    if (leftKey == null || rightKey == null)
+                    {
+                        if (leftKey != rightKey)
+                        {
+                            return (leftKey == null) == nullOrdering.nullsFirst(ascending) ? -1 : 1;
+                        }
+                        continue;
+                    }
+                    int result = leftKey.compareTo(rightKey);
+                    if (result != 0)
+                    {
+                        return ascending ? result : -result;
+                    }
+                }
+                return 0;
+            }
+        });
+    }
+}
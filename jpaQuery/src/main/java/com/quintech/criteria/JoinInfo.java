@@ -1,18 +1,17 @@
 package com.quintech.criteria;
 
-import java.util.Collections;
 import java.util.List;
 
-import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.SingularAttribute;
 
-public final class JoinInfo<T, J> implements FromInfo<T, J>
+public final class JoinInfo<T, J> extends AbstractJoinInfo<T, J, JoinInfo<T, J>>
 {
     private final AndInfo<T, J> andInfo;
     private final RootInfo<J> joinFrom;
+    private final int joinPredicates;
     
     public static class AndInfo<T, J>
     {
@@ -36,14 +35,9 @@ public final class JoinInfo<T, J> implements FromInfo<T, J>
         }
     }
     
-    public CriteriaBuilder getCriteriaBuilder()
-    {
-        return andInfo.mainFrom.getCriteriaBuilder();
-    }
-    
     private Root<T> getMainEntity()
     {
-        return andInfo.mainFrom.getFrom();
+        return this.mainFrom.getFrom();
     }
     
     public Root<J> getFrom()
@@ -61,19 +55,31 @@ public final class JoinInfo<T, J> implements FromInfo<T, J>
         this.joinFrom.addPredicate(predicate);
     }
     
+    /**
+     * The join condition is not a criterion of its own, so it is never OR-ed.
+     */
+    void addAlternative(Predicate predicate)
+    {
+        if (this.joinFrom.getPredicates().size() <= this.joinPredicates)
+        {
+            throw new IllegalStateException("or() must follow a predicate on the same entity");
+        }
+        this.joinFrom.addAlternative(predicate);
+    }
+    
     public List<Predicate> getPredicates()
     {
-        return Collections.unmodifiableList(this.joinFrom.getPredicates());
+        return this.joinFrom.getPredicates();
     }
     
     public List<Order> getOrderBys()
     {
-        return Collections.unmodifiableList(this.joinFrom.getOrderBys());
+        return this.joinFrom.getOrderBys();
     }
 
     public JoinInfo(AndInfo<T, J> andFrom)
     {
-        super();
+        super(andFrom.mainFrom);
         this.andInfo = andFrom;
         this.joinFrom = new RootInfo<J>(andFrom.mainFrom, andFrom.joinClass);
         
@@ -82,29 +88,10 @@ public final class JoinInfo<T, J> implements FromInfo<T, J>
             addPredicate(getCriteriaBuilder().equal(this.getMainEntity().get(this.andInfo.sourceField),
                 this.getFrom().get(this.andInfo.joinField)));
         }
+        this.joinPredicates = this.joinFrom.getPredicates().size();
         andFrom.mainFrom.addJoin(this);
     }
 
-    public List<T> resultList()
-    {
-        return this.andInfo.mainFrom.resultList();
-    }
-
-    public T singleResult()
-    {
-        return this.andInfo.mainFrom.singleResult();
-    }
-
-    public <V> RootFieldCriteria<T, J> with(SingularAttribute<J, ? extends V> field)
-    {
-        return new RootFieldCriteria<T, J>(this, field);
-    }
-
-    public <V> RootFieldCriteria<T, J> and(SingularAttribute<J, ? extends V> field)
-    {
-        return with(field);
-    }
-
     public <V> JoinInfo<T, J> descendingBy(SingularAttribute<J, ? extends V> field)
     {
         addOrderBy(joinFrom.getCriteriaBuilder().desc(joinFrom.getFrom().get(field)));
@@ -118,10 +105,4 @@ public final class JoinInfo<T, J> implements FromInfo<T, J>
         return this;
 
     }
-
-    @Override
-    public <K> AndInfo<T, K> andFrom(Class<K> joinClass)
-    {
-        return new AndInfo<T, K>(this.andInfo.mainFrom, joinClass);
-    }
 }
@@ -0,0 +1,168 @@
+package com.quintech.criteria;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.apache.commons.lang.ClassUtils;
+
+/**
+ * Pages of a query that seek past the sort keys of the last row of the previous page instead of skipping an offset.
+ * The ids of the root and of its inner joins are added as the last sort keys so that every row has a distinct key.
+ * A fetched collection would multiply the rows that the page size limits, so its elements are prefetched instead.
+ */
+final class KeysetPaging<T>
+{
+    private final RootInfo<T> rootInfo;
+
+    KeysetPaging(RootInfo<T> rootInfo)
+    {
+        super();
+        this.rootInfo = rootInfo;
+    }
+
+    Object[] keyOf(T lastRow)
+    {
+        List<Order> sortKeys = getSortKeys();
+        Object[] lastKey = new Object[sortKeys.size()];
+        for (int i = 0; i < lastKey.length; i++)
+        {
+            lastKey[i] = this.rootInfo.readSortKey(lastRow, sortKeys.get(i).getExpression());
+        }
+        return lastKey;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    Page<T> seek(Object[] lastKey, int size)
+    {
+        if (size < 1)
+        {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+        if (this.rootInfo.fetchesCollection())
+        {
+            throw new IllegalStateException("Pages are limited in rows, which a fetched collection multiplies;"
+                + " prefetch() the collection instead");
+        }
+        if (this.rootInfo.isUnsatisfiable("page"))
+        {
+            return new Page<T>(new ArrayList<T>(), lastKey, size, false);
+        }
+
+        CriteriaBuilder builder = this.rootInfo.getCriteriaBuilder();
+        List<Order> sortKeys = getSortKeys();
+        List<Predicate> allPredicates = this.rootInfo.getAllPredicates();
+        List<Selection<?>> selections = new ArrayList<Selection<?>>();
+        selections.add(this.rootInfo.getFrom());
+        List<ParameterExpression<?>> keyParameters = new ArrayList<ParameterExpression<?>>();
+        List<Object> keyValues = new ArrayList<Object>();
+        List<Predicate> alternatives = new ArrayList<Predicate>();
+        List<Predicate> equalities = new ArrayList<Predicate>();
+        NullOrdering nullOrdering = lastKey == null ? null : NullOrdering.of(this.rootInfo.getEntityManager()
+            .getEntityManagerFactory());
+        for (int i = 0; i < sortKeys.size(); i++)
+        {
+            Order sortKey = sortKeys.get(i);
+            Expression key = sortKey.getExpression();
+            selections.add(key);
+            if (lastKey == null)
+            {
+                continue;
+            }
+            boolean nullsAfter = !nullOrdering.nullsFirst(sortKey.isAscending());
+            Predicate after;
+            Predicate equality;
+            if (lastKey[i] == null)
+            {
+                after = nullsAfter ? null : builder.isNotNull(key);
+                equality = builder.isNull(key);
+            }
+            else
+            {
+                ParameterExpression parameter =
+                    builder.parameter(ClassUtils.primitiveToWrapper(key.getJavaType()), "k" + keyParameters.size());
+                keyParameters.add(parameter);
+                keyValues.add(lastKey[i]);
+                after = sortKey.isAscending() ? builder.greaterThan(key, parameter) : builder.lessThan(key, parameter);
+                if (nullsAfter)
+                {
+                    after = builder.or(after, builder.isNull(key));
+                }
+                equality = builder.equal(key, parameter);
+            }
+            if (after != null)
+            {
+                List<Predicate> alternative = new ArrayList<Predicate>(equalities);
+                alternative.add(after);
+                alternatives.add(builder.and(alternative.toArray(new Predicate[alternative.size()])));
+            }
+            equalities.add(equality);
+        }
+        if (lastKey != null)
+        {
+            allPredicates.add(builder.or(alternatives.toArray(new Predicate[alternatives.size()])));
+        }
+
+        long started = System.nanoTime();
+        this.rootInfo.buildCriteria(allPredicates, sortKeys).multiselect(selections);
+        TypedQuery<Object> query = this.rootInfo.createQuery(this.rootInfo.getCriteria());
+        for (int i = 0; i < keyParameters.size(); i++)
+        {
+            query.setParameter((ParameterExpression<Object>) keyParameters.get(i), keyValues.get(i));
+        }
+        List<Object> rows = this.rootInfo.execute("page", query.setMaxResults(size + 1), started);
+
+        List<T> content = new ArrayList<T>(Math.min(rows.size(), size));
+        Object[] pageKey = lastKey;
+        for (int i = 0; i < rows.size() && i < size; i++)
+        {
+            Object[] row = (Object[]) rows.get(i);
+            content.add((T) row[0]);
+            pageKey = Arrays.copyOfRange(row, 1, row.length);
+        }
+        return new Page<T>(this.rootInfo.prefetched(content), pageKey, size, rows.size() > size);
+    }
+
+    private List<Order> getSortKeys()
+    {
+        List<Order> sortKeys = new ArrayList<Order>(this.rootInfo.getAllOrderBys());
+        addTieBreak(sortKeys, this.rootInfo.getFrom());
+        for (FromInfo<T, ?> join : this.rootInfo.getJoins())
+        {
+            addTieBreak(sortKeys, join.getFrom());
+        }
+        return sortKeys;
+    }
+
+    private <X> void addTieBreak(List<Order> sortKeys, From<?, X> root)
+    {
+        if (root instanceof Join && ((Join<?, X>) root).getJoinType() != JoinType.INNER)
+        {
+            return;
+        }
+        SingularAttribute<? super X, ?> idAttribute = this.rootInfo.getIdAttribute(root);
+        for (Order sortKey : sortKeys)
+        {
+            Expression<?> key = sortKey.getExpression();
+            if (key instanceof Path && ((Path<?>) key).getParentPath() == root
+                && idAttribute.equals(((Path<?>) key).getModel()))
+            {
+                return;
+            }
+        }
+        sortKeys.add(this.rootInfo.getCriteriaBuilder().asc(root.get(idAttribute)));
+    }
+}
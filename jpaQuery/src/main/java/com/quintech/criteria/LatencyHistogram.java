@@ -0,0 +1,99 @@
+package com.quintech.criteria;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of nanosecond latencies. Each power of two is split into 8 linear buckets, so recorded values
+ * are reported with a precision of 12.5%.
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos)
+    {
+        long value = Math.max(0, nanos);
+        this.buckets.incrementAndGet(indexOf(value));
+        this.count.incrementAndGet();
+        this.total.addAndGet(value);
+        long current = this.max.get();
+        while (value > current && !this.max.compareAndSet(current, value))
+        {
+            current = this.max.get();
+        }
+    }
+
+    public long getCount()
+    {
+        return this.count.get();
+    }
+
+    public long getMax()
+    {
+        return this.max.get();
+    }
+
+    public long getMean()
+    {
+        long recorded = this.count.get();
+        return recorded == 0 ? 0 : this.total.get() / recorded;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, capped at the maximum recorded value.
+     */
+    public long getPercentile(double percentile)
+    {
+        long recorded = this.count.get();
+        if (recorded == 0)
+        {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += this.buckets.get(i);
+            if (seen >= target)
+            {
+                return Math.min(lowestValueOf(i + 1) - 1, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    private static int indexOf(long value)
+    {
+        if (value < LINEAR_BUCKETS)
+        {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long lowestValueOf(int index)
+    {
+        if (index < LINEAR_BUCKETS)
+        {
+            return index;
+        }
+        if (index >= BUCKETS)
+        {
+            return Long.MAX_VALUE;
+        }
+        int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        long subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+}
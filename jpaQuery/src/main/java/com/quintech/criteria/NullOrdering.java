@@ -0,0 +1,51 @@
+package com.quintech.criteria;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.jdbc.sql.DB2Dictionary;
+import org.apache.openjpa.jdbc.sql.DBDictionary;
+import org.apache.openjpa.jdbc.sql.DerbyDictionary;
+import org.apache.openjpa.jdbc.sql.H2Dictionary;
+import org.apache.openjpa.jdbc.sql.HSQLDictionary;
+import org.apache.openjpa.jdbc.sql.OracleDictionary;
+import org.apache.openjpa.jdbc.sql.PostgresDictionary;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+
+/**
+ * Where the database puts nulls when sorting without NULLS FIRST or NULLS LAST, which JPA 2.0 cannot express. Oracle,
+ * PostgreSQL, DB2 and Derby sort nulls as higher than any value, HSQLDB and H2 sort them first in both directions,
+ * and MySQL, SQL Server and the others as lower than any value.
+ */
+enum NullOrdering
+{
+    LOW, HIGH, FIRST;
+
+    static NullOrdering of(EntityManagerFactory emf)
+    {
+        OpenJPAConfiguration configuration =
+            ((OpenJPAEntityManagerFactorySPI) OpenJPAPersistence.cast(emf)).getConfiguration();
+        if (!(configuration instanceof JDBCConfiguration))
+        {
+            return LOW;
+        }
+        DBDictionary dictionary = ((JDBCConfiguration) configuration).getDBDictionaryInstance();
+        if (dictionary instanceof OracleDictionary || dictionary instanceof PostgresDictionary
+            || dictionary instanceof DB2Dictionary || dictionary instanceof DerbyDictionary)
+        {
+            return HIGH;
+        }
+        if (dictionary instanceof HSQLDictionary || dictionary instanceof H2Dictionary)
+        {
+            return FIRST;
+        }
+        return LOW;
+    }
+
+    boolean nullsFirst(boolean ascending)
+    {
+        return this == FIRST || (this == LOW) == ascending;
+    }
+}
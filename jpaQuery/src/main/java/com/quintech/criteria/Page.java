@@ -0,0 +1,46 @@
+package com.quintech.criteria;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset paginated query. The page remembers the sort key values of its last row, so the next page is
+ * found with a seek predicate on those values instead of an offset. Null sort keys are placed where the database sorts
+ * them.
+ */
+public final class Page<T>
+{
+    private final List<T> content;
+    private final Object[] lastKey;
+    private final int size;
+    private final boolean hasNext;
+
+    protected Page(List<T> content, Object[] lastKey, int size, boolean hasNext)
+    {
+        super();
+        this.content = Collections.unmodifiableList(content);
+        this.lastKey = lastKey;
+        this.size = size;
+        this.hasNext = hasNext;
+    }
+
+    public List<T> getContent()
+    {
+        return content;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public boolean hasNext()
+    {
+        return hasNext;
+    }
+
+    public Object[] getLastKey()
+    {
+        return lastKey == null ? null : lastKey.clone();
+    }
+}
@@ -0,0 +1,164 @@
+package com.quintech.criteria;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+
+import org.apache.commons.lang.ClassUtils;
+import org.apache.openjpa.persistence.jdbc.ResultSetType;
+
+/**
+ * Rows of a query streamed in id ranges, each on its own EntityManager, on the executor of the query or else on a pool
+ * with at most one thread per processor.
+ */
+final class ParallelScan<T>
+{
+    private final RootInfo<T> rootInfo;
+    private final Executor executor;
+
+    ParallelScan(RootInfo<T> rootInfo, Executor executor)
+    {
+        super();
+        this.rootInfo = rootInfo;
+        this.executor = executor;
+    }
+
+    @SuppressWarnings("unchecked")
+    long run(int partitions, final ResultHandler<? super T> handler)
+    {
+        CriteriaBuilder builder = this.rootInfo.getCriteriaBuilder();
+        final Path<Number> id = (Path<Number>) this.rootInfo.getFrom().get(
+            this.rootInfo.getIdAttribute(this.rootInfo.getFrom()));
+        final Class<?> idType = ClassUtils.primitiveToWrapper(id.getJavaType());
+        if (idType != Long.class && idType != Integer.class && idType != Short.class && idType != Byte.class)
+        {
+            throw new IllegalArgumentException("Parallel scans need an integral id, not " + idType.getName());
+        }
+        long started = System.nanoTime();
+        this.rootInfo.buildCriteria(this.rootInfo.getAllPredicates(), Collections.<Order> emptyList()).distinct(false)
+            .multiselect(builder.min(id), builder.max(id));
+        Object[] bounds = (Object[]) this.rootInfo.execute("scan",
+            this.rootInfo.createQuery(this.rootInfo.getCriteria()), started).get(0);
+        if (bounds[0] == null)
+        {
+            return 0;
+        }
+
+        List<long[]> ranges = partitionRanges(((Number) bounds[0]).longValue(), ((Number) bounds[1]).longValue(),
+            partitions);
+        final EntityManagerFactory factory = this.rootInfo.getEntityManager().getEntityManagerFactory();
+        ExecutorService pool = this.executor == null ? Executors.newFixedThreadPool(Math.min(ranges.size(),
+            Runtime.getRuntime().availableProcessors())) : null;
+        try
+        {
+            List<Future<Long>> futures = new ArrayList<Future<Long>>(ranges.size());
+            for (long[] range : ranges)
+            {
+                final Number from = toIdValue(idType, range[0]);
+                final Number to = toIdValue(idType, range[1]);
+                FutureTask<Long> partition = new FutureTask<Long>(new Callable<Long>()
+                {
+                    public Long call()
+                    {
+                        EntityManager partitionEm = factory.createEntityManager();
+                        try
+                        {
+                            return scanPartition(partitionEm, id, from, to, handler);
+                        }
+                        finally
+                        {
+                            partitionEm.close();
+                        }
+                    }
+                });
+                (pool != null ? pool : this.executor).execute(partition);
+                futures.add(partition);
+            }
+
+            long rows = 0;
+            for (Long partitionRows : ChunkedExecution.awaitAll(futures, "scan partitions"))
+            {
+                rows += partitionRows;
+            }
+            return rows;
+        }
+        finally
+        {
+            if (pool != null)
+            {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Inclusive id ranges of at most the given number of partitions covering lowest to highest. The arithmetic is done
+     * on BigInteger since the span of a long id range does not fit in a long.
+     */
+    static List<long[]> partitionRanges(long lowest, long highest, int partitions)
+    {
+        BigInteger low = BigInteger.valueOf(lowest);
+        BigInteger high = BigInteger.valueOf(highest);
+        BigInteger partitionSize = high.subtract(low).divide(BigInteger.valueOf(partitions)).add(BigInteger.ONE);
+        List<long[]> ranges = new ArrayList<long[]>(Math.min(partitions, high.subtract(low).divide(partitionSize)
+            .intValue() + 1));
+        for (; low.compareTo(high) <= 0; low = low.add(partitionSize))
+        {
+            ranges.add(new long[] { low.longValue(), low.add(partitionSize).subtract(BigInteger.ONE).min(high)
+                .longValue() });
+        }
+        return ranges;
+    }
+
+    @SuppressWarnings("unchecked")
+    private long scanPartition(EntityManager partitionEm, Path<Number> id, Number from, Number to,
+        ResultHandler<? super T> handler)
+    {
+        long started = System.nanoTime();
+        TypedQuery<Object> query;
+        synchronized (this.rootInfo.getCriteria())
+        {
+            List<Predicate> allPredicates = this.rootInfo.getAllPredicates();
+            allPredicates.add(this.rootInfo.getCriteriaBuilder().ge(id, from));
+            allPredicates.add(this.rootInfo.getCriteriaBuilder().le(id, to));
+            this.rootInfo.buildCriteria(allPredicates, this.rootInfo.getAllOrderBys()).select(this.rootInfo.getFrom());
+            query = this.rootInfo.createCompiledQuery(partitionEm, this.rootInfo.getCriteria());
+        }
+        query.setHint(QueryHints.FETCH_BATCH_SIZE_HINT, this.rootInfo.getFetchSize());
+        query.setHint(RootInfo.RESULT_SET_TYPE_HINT, ResultSetType.FORWARD_ONLY);
+        List<T> results = (List<T>) (List<?>) this.rootInfo.execute("scan", query, started, false);
+        return RootInfo.handleAll(new ResultIterator<T>(partitionEm, results, this.rootInfo.getBatchSize()), handler);
+    }
+
+    private static Number toIdValue(Class<?> idType, long value)
+    {
+        if (idType == Integer.class)
+        {
+            return Integer.valueOf((int) value);
+        }
+        if (idType == Short.class)
+        {
+            return Short.valueOf((short) value);
+        }
+        if (idType == Byte.class)
+        {
+            return Byte.valueOf((byte) value);
+        }
+        return Long.valueOf(value);
+    }
+}
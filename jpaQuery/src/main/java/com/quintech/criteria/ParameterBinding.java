@@ -0,0 +1,76 @@
+package com.quintech.criteria;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.ParameterExpression;
+
+final class ParameterBinding
+{
+    private final ParameterExpression<?>[] parameters;
+    private final ValueFormat format;
+    private final boolean list;
+    private final Object value;
+
+    ParameterBinding(ParameterExpression<?> parameter, ValueFormat format, Object value)
+    {
+        super();
+        this.parameters = new ParameterExpression<?>[] { parameter };
+        this.format = format;
+        this.list = false;
+        this.value = value;
+    }
+
+    ParameterBinding(ParameterExpression<?>[] parameters, Collection<?> values)
+    {
+        super();
+        this.parameters = parameters;
+        this.format = ValueFormat.AS_IS;
+        this.list = true;
+        this.value = new ArrayList<Object>(values);
+    }
+
+    Object getValue()
+    {
+        return this.value;
+    }
+
+    void bind(TypedQuery<?> query)
+    {
+        bind(query, this.value);
+    }
+
+    @SuppressWarnings("unchecked")
+    void bind(TypedQuery<?> query, Object value)
+    {
+        if (!this.list)
+        {
+            query.setParameter((ParameterExpression<Object>) this.parameters[0], this.format.format(value));
+            return;
+        }
+
+        if (!(value instanceof Collection))
+        {
+            throw new IllegalArgumentException("Expected a collection of values but got " + value);
+        }
+        Collection<?> values = (Collection<?>) value;
+        if (values.isEmpty() || values.size() > this.parameters.length)
+        {
+            throw new IllegalArgumentException("Expected between 1 and " + this.parameters.length
+                + " values but got " + values.size());
+        }
+
+        Iterator<?> iterator = values.iterator();
+        Object current = null;
+        for (ParameterExpression<?> parameter : this.parameters)
+        {
+            if (iterator.hasNext())
+            {
+                current = iterator.next();
+            }
+            query.setParameter((ParameterExpression<Object>) parameter, current);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.quintech.criteria;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Predicates OR-ed ({@code anyOf}) or AND-ed ({@code allOf}) together and AND-ed as a whole with the other criteria of
+ * the query. Groups nest, and an empty group matches every row. Predicates of a group are not checked for
+ * contradictions and its IN lists are not split into chunks. {@link #end()} closes the group and returns P, the entity
+ * or the group it was opened on, where the criteria and the terminals go on.
+ */
+public final class PredicateGroup<T, U, P> extends AbstractNestedInfo<T, U>
+{
+    private final AbstractFromInfo<T, U> owner;
+    private final P parent;
+    private final boolean any;
+    private final List<Predicate> predicates = new ArrayList<Predicate>();
+    private final List<PredicateGroup<T, U, ?>> groups = new ArrayList<PredicateGroup<T, U, ?>>(0);
+
+    PredicateGroup(RootInfo<T> mainFrom, AbstractFromInfo<T, U> owner, P parent, boolean any)
+    {
+        super(mainFrom);
+        this.owner = owner;
+        this.parent = parent;
+        this.any = any;
+        mainFrom.addGroup(this);
+    }
+
+    private PredicateGroup(PredicateGroup<T, U, ?> enclosing, P parent, boolean any)
+    {
+        super(enclosing.mainFrom);
+        this.owner = enclosing.owner;
+        this.parent = parent;
+        this.any = any;
+        enclosing.groups.add(this);
+    }
+
+    /**
+     * The combined predicate, or null when the group is empty.
+     */
+    Predicate toPredicate()
+    {
+        List<Predicate> all = new ArrayList<Predicate>(this.predicates.size() + this.groups.size());
+        all.addAll(this.predicates);
+        for (int i = 0; i < this.groups.size(); i++)
+        {
+            Predicate group = this.groups.get(i).toPredicate();
+            if (group != null)
+            {
+                all.add(group);
+            }
+        }
+        if (all.isEmpty())
+        {
+            return null;
+        }
+        if (all.size() == 1)
+        {
+            return all.get(0);
+        }
+        Predicate[] restrictions = all.toArray(new Predicate[all.size()]);
+        return this.any ? getCriteriaBuilder().or(restrictions) : getCriteriaBuilder().and(restrictions);
+    }
+
+    public From<?, U> getFrom()
+    {
+        return this.owner.getFrom();
+    }
+
+    public void addPredicate(Predicate predicate)
+    {
+        if (predicate != null)
+        {
+            this.predicates.add(predicate);
+        }
+    }
+
+    void addAlternative(Predicate predicate)
+    {
+        RootInfo.orWithLast(getCriteriaBuilder(), this.predicates, predicate);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void addIn(Expression<?> expression, Collection<?> values)
+    {
+        addPredicate(PredicateUtils.in(getCriteriaBuilder(), expression,
+            valuesOf((Class<Object>) expression.getJavaType(), values)));
+    }
+
+    @Override
+    void addRange(Path<?> path, Object lowest, Object highest)
+    {
+    }
+
+    public List<Predicate> getPredicates()
+    {
+        return Collections.unmodifiableList(this.predicates);
+    }
+
+    public <V> GroupCriteria<T, U, P> with(SingularAttribute<U, ? extends V> field)
+    {
+        return new GroupCriteria<T, U, P>(this, field, false);
+    }
+
+    public <V> GroupCriteria<T, U, P> and(SingularAttribute<U, ? extends V> field)
+    {
+        return with(field);
+    }
+
+    public <V> GroupCriteria<T, U, P> or(SingularAttribute<U, ? extends V> field)
+    {
+        return new GroupCriteria<T, U, P>(this, field, true);
+    }
+
+    public PredicateGroup<T, U, PredicateGroup<T, U, P>> anyOf()
+    {
+        return new PredicateGroup<T, U, PredicateGroup<T, U, P>>(this, this, true);
+    }
+
+    public PredicateGroup<T, U, PredicateGroup<T, U, P>> allOf()
+    {
+        return new PredicateGroup<T, U, PredicateGroup<T, U, P>>(this, this, false);
+    }
+
+    public <S> SubqueryInfo.CorrelationInfo<T, U, S, PredicateGroup<T, U, P>> whereExists(Class<S> entityClass)
+    {
+        return new SubqueryInfo.CorrelationInfo<T, U, S, PredicateGroup<T, U, P>>(this, this, entityClass, true);
+    }
+
+    public <S> SubqueryInfo.CorrelationInfo<T, U, S, PredicateGroup<T, U, P>> whereNotExists(Class<S> entityClass)
+    {
+        return new SubqueryInfo.CorrelationInfo<T, U, S, PredicateGroup<T, U, P>>(this, this, entityClass, false);
+    }
+
+    public P end()
+    {
+        return this.parent;
+    }
+}
@@ -14,14 +14,28 @@ public class PredicateUtils
 
     private static final char ESCAPE_CHAR = '\\';
 
+    private static final String[] SEARCH_STRINGS = { "_", LIKE_WILDCARD };
+
+    private static final String[] REPLACEMENT_STRINGS = { ESCAPE_CHAR + "_", ESCAPE_CHAR + LIKE_WILDCARD };
+
     public static String escapeSQL(String value)
     {
-        final String[] searchStrings =
-        { "_", "%" };
-        final String[] replacementStrings =
-        { ESCAPE_CHAR + "_", ESCAPE_CHAR + LIKE_WILDCARD };
+        if (value == null || (value.indexOf('_') < 0 && value.indexOf('%') < 0))
+        {
+            return value;
+        }
+
+        return StringUtils.replaceEach(value, SEARCH_STRINGS, REPLACEMENT_STRINGS);
+    }
+
+    public static String startsWithPattern(String value)
+    {
+        return escapeSQL(value) + LIKE_WILDCARD;
+    }
 
-        return StringUtils.replaceEach(value, searchStrings, replacementStrings);
+    public static String containsPattern(String value)
+    {
+        return LIKE_WILDCARD + escapeSQL(value) + LIKE_WILDCARD;
     }
 
     public static <T, V> Predicate equalTo(CriteriaBuilder builder, Expression<?> path, V value)
@@ -29,6 +43,11 @@ public class PredicateUtils
         return builder.equal(path, value);
     }
 
+    public static Predicate equalTo(CriteriaBuilder builder, Expression<?> path, Expression<?> value)
+    {
+        return builder.equal(path, value);
+    }
+
     public static <T> Predicate equalToIgnoreCase(CriteriaBuilder builder, Expression<String> path, String value)
     {
         return builder.equal(builder.upper(path), StringUtils.upperCase(value));
@@ -36,23 +55,27 @@ public class PredicateUtils
 
     public static <T> Predicate startsWith(CriteriaBuilder builder, Expression<String> path, String value)
     {
-        return builder.like(path, escapeSQL(value) + LIKE_WILDCARD, ESCAPE_CHAR);
+        return builder.like(path, startsWithPattern(value), ESCAPE_CHAR);
     }
 
     public static <T> Predicate startsWithIgnoreCase(CriteriaBuilder builder, Expression<String> path, String value)
     {
-        return builder.like(builder.upper(path), escapeSQL(StringUtils.upperCase(value)) + LIKE_WILDCARD, ESCAPE_CHAR);
+        return builder.like(builder.upper(path), startsWithPattern(StringUtils.upperCase(value)), ESCAPE_CHAR);
     }
 
     public static <T> Predicate contains(CriteriaBuilder builder, Expression<String> path, String value)
     {
-        return builder.like(path, LIKE_WILDCARD + escapeSQL(value) + LIKE_WILDCARD, ESCAPE_CHAR);
+        return builder.like(path, containsPattern(value), ESCAPE_CHAR);
     }
 
     public static <T> Predicate containsIgnoreCase(CriteriaBuilder builder, Expression<String> path, String value)
     {
-        return builder.like(builder.upper(path), LIKE_WILDCARD + escapeSQL(StringUtils.upperCase(value))
-            + LIKE_WILDCARD, ESCAPE_CHAR);
+        return builder.like(builder.upper(path), containsPattern(StringUtils.upperCase(value)), ESCAPE_CHAR);
+    }
+
+    public static Predicate like(CriteriaBuilder builder, Expression<String> path, Expression<String> pattern)
+    {
+        return builder.like(path, pattern, ESCAPE_CHAR);
     }
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -70,6 +93,14 @@ public class PredicateUtils
         return builder.and();
     }
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static Predicate isNullOrNotLessThan(CriteriaBuilder builder, Expression<?> expression,
+        Expression<?> value)
+    {
+        return builder.or(builder.isNull(expression),
+            builder.greaterThanOrEqualTo((Expression) expression, (Expression) value));
+    }
+
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public static <T, V> Predicate notLessThan(CriteriaBuilder builder, Expression<?> expression, V value)
     {
@@ -81,6 +112,12 @@ public class PredicateUtils
         return builder.and();
     }
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static Predicate notLessThan(CriteriaBuilder builder, Expression<?> expression, Expression<?> value)
+    {
+        return builder.greaterThanOrEqualTo((Expression) expression, (Expression) value);
+    }
+
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public static <T, V> Predicate notGreaterThan(CriteriaBuilder builder, Expression<?> expression, V value)
     {
@@ -92,6 +129,12 @@ public class PredicateUtils
         return builder.and();
     }
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static Predicate notGreaterThan(CriteriaBuilder builder, Expression<?> expression, Expression<?> value)
+    {
+        return builder.lessThanOrEqualTo((Expression) expression, (Expression) value);
+    }
+
     public static <T, V> Predicate in(CriteriaBuilder builder, Expression<?> expression, Collection<V> values)
     {
         if (values.size() > 0)
@@ -102,4 +145,14 @@ public class PredicateUtils
         return builder.or();
     }
 
+    public static Predicate in(CriteriaBuilder builder, Expression<?> expression, Expression<?>... values)
+    {
+        if (values.length > 0)
+        {
+            return expression.in(values);
+        }
+
+        return builder.or();
+    }
+
 }
@@ -0,0 +1,105 @@
+package com.quintech.criteria;
+
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.PluralAttribute;
+
+/**
+ * Collections of the results loaded once the query has run, with a fetch join on the ids of the results in IN lists
+ * of the chunk size.
+ */
+final class Prefetch<T>
+{
+    private final RootInfo<T> rootInfo;
+    private final List<PluralAttribute<? super T, ?, ?>> attributes =
+        new ArrayList<PluralAttribute<? super T, ?, ?>>(1);
+
+    Prefetch(RootInfo<T> rootInfo)
+    {
+        super();
+        this.rootInfo = rootInfo;
+    }
+
+    void add(PluralAttribute<? super T, ?, ?> attribute)
+    {
+        this.attributes.add(attribute);
+    }
+
+    List<PluralAttribute<? super T, ?, ?>> getAttributes()
+    {
+        return this.attributes;
+    }
+
+    List<T> load(List<T> results)
+    {
+        if (results.isEmpty())
+        {
+            return results;
+        }
+
+        PersistenceUnitUtil persistenceUtil = this.rootInfo.getEntityManagerFactory().getPersistenceUnitUtil();
+        Member idMember = this.rootInfo.getIdAttribute(this.rootInfo.getFrom()).getJavaMember();
+        int chunkSize = this.rootInfo.getInChunkSize();
+        List<T> prefetched = new ArrayList<T>(results);
+        for (PluralAttribute<? super T, ?, ?> attribute : this.attributes)
+        {
+            Set<Object> ids = new LinkedHashSet<Object>();
+            for (T result : prefetched)
+            {
+                if (!persistenceUtil.isLoaded(result, attribute.getName()))
+                {
+                    ids.add(RootInfo.readMember(result, idMember));
+                }
+            }
+            List<Object> owners = new ArrayList<Object>(ids);
+            Map<Object, T> managed = new HashMap<Object, T>(owners.size() * 4 / 3 + 1);
+            for (int from = 0; from < owners.size(); from += chunkSize)
+            {
+                for (T owner : load(attribute, owners.subList(from, Math.min(from + chunkSize, owners.size()))))
+                {
+                    managed.put(RootInfo.readMember(owner, idMember), owner);
+                }
+            }
+            for (int i = 0; i < prefetched.size() && !managed.isEmpty(); i++)
+            {
+                T owner = managed.get(RootInfo.readMember(prefetched.get(i), idMember));
+                if (owner != null)
+                {
+                    prefetched.set(i, owner);
+                }
+            }
+        }
+        return prefetched;
+    }
+
+    /**
+     * Loading the owners with a fetch join fills the collection of the managed instances, which are returned once per
+     * element of their collection.
+     */
+    @SuppressWarnings("unchecked")
+    private List<T> load(PluralAttribute<? super T, ?, ?> attribute, List<Object> ids)
+    {
+        long started = System.nanoTime();
+        CriteriaBuilder builder = this.rootInfo.getCriteriaBuilder();
+        Class<T> type = (Class<T>) this.rootInfo.getFrom().getJavaType();
+        CriteriaQuery<T> owners = builder.createQuery(type);
+        Root<T> owner = owners.from(type);
+        owner.fetch(attribute, JoinType.LEFT);
+        owners.select(owner).where(owner.get(this.rootInfo.getIdAttribute(owner)).in(ids));
+        TypedQuery<T> query = this.rootInfo.getEntityManager().createQuery(owners);
+        this.rootInfo.getHints().apply(query);
+        return this.rootInfo.execute("prefetch", query, started, false);
+    }
+}
@@ -0,0 +1,40 @@
+package com.quintech.criteria;
+
+import java.util.List;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Selection;
+
+public final class Projection<T>
+{
+    private final RootInfo<T> rootInfo;
+    private final Selection<?>[] selections;
+
+    protected Projection(RootInfo<T> rootInfo, Selection<?>[] selections)
+    {
+        super();
+        this.rootInfo = rootInfo;
+        this.selections = selections;
+    }
+
+    public List<Object[]> resultList()
+    {
+        return rootInfo.project(getCriteriaBuilder().array(selections));
+    }
+
+    public List<Tuple> tupleList()
+    {
+        return rootInfo.project(getCriteriaBuilder().tuple(selections));
+    }
+
+    public <D> List<D> resultList(Class<D> resultClass)
+    {
+        return rootInfo.project(getCriteriaBuilder().construct(resultClass, selections));
+    }
+
+    private CriteriaBuilder getCriteriaBuilder()
+    {
+        return rootInfo.getCriteriaBuilder();
+    }
+}
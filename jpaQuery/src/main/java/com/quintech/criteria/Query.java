@@ -1,24 +1,57 @@
 package com.quintech.criteria;
 
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
 public class Query
 {
+    private static Executor defaultExecutor;
+    private static volatile QueryHints defaultHints = new QueryHints();
+
     public static class Using
     {
         private final EntityManager em;
+        private final EntityManagerFactory emf;
+        private boolean parameterized;
+        private Executor executor;
 
         public Using(EntityManager em)
         {
             super();
             this.em = em;
+            this.emf = null;
+        }
+
+        public Using(EntityManagerFactory emf)
+        {
+            super();
+            this.em = null;
+            this.emf = emf;
+        }
+
+        public Using parameterized()
+        {
+            this.parameterized = true;
+            return this;
         }
         
+        public Using executor(Executor executor)
+        {
+            this.executor = executor;
+            return this;
+        }
+
         public <T> RootInfo<T> selectFrom(Class<T> entityClass)
         {
-            return new RootInfo<T>(this.em, entityClass);
+            RootInfo<T> rootInfo = this.em != null ? new RootInfo<T>(this.em, entityClass, this.parameterized)
+                : new RootInfo<T>(this.emf, entityClass, this.parameterized);
+            return rootInfo.executor(this.executor);
         }
 
         public <T> List<T> selectAllFrom(Class<T> entityClass)
@@ -31,4 +64,60 @@ public class Query
     {
         return new Using(em);
     }
+
+    /**
+     * Queries built from a factory have no EntityManager of their own and are run with the asynchronous terminals.
+     */
+    public static Using using(EntityManagerFactory emf)
+    {
+        return new Using(emf);
+    }
+
+    public static synchronized void setDefaultExecutor(Executor executor)
+    {
+        defaultExecutor = executor;
+    }
+
+    /**
+     * Hints every query starts from, e.g. a fetch size and a timeout for all the queries of an application.
+     */
+    public static void setDefaultHints(QueryHints hints)
+    {
+        defaultHints = new QueryHints(hints);
+    }
+
+    /**
+     * The defaults are copied when set and never changed afterwards, so queries share them until they set their own.
+     */
+    static QueryHints getDefaultHints()
+    {
+        return defaultHints;
+    }
+
+    /**
+     * Unless set, asynchronous terminals run on a shared pool of daemon threads.
+     */
+    static synchronized Executor getDefaultExecutor()
+    {
+        if (defaultExecutor == null)
+        {
+            defaultExecutor = Executors.newCachedThreadPool(new ThreadFactory()
+            {
+                private final AtomicInteger threads = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "jpaQuery-async-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultExecutor;
+    }
+
+    public static <T> RootInfo<T> template(EntityManagerFactory emf, Class<T> entityClass)
+    {
+        return new RootInfo<T>(emf, entityClass);
+    }
 }
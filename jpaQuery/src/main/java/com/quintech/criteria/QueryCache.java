@@ -0,0 +1,293 @@
+package com.quintech.criteria;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import org.apache.openjpa.event.AbstractTransactionListener;
+import org.apache.openjpa.event.TransactionEvent;
+import org.apache.openjpa.kernel.Broker;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+
+/**
+ * Results of cacheable queries, one cache per EntityManagerFactory. Entries are keyed by the query text plus the
+ * bound values and are evicted least recently used first, when their time to live expires, or when a transaction
+ * commits a write to any entity type the query or its subqueries select from, join or fetch. Only one caller loads a
+ * missing entry; concurrent callers for the same entry wait for its result.
+ */
+public final class QueryCache
+{
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static final int STRIPES = 16;
+    private static final Map<EntityManagerFactory, QueryCache> CACHES =
+        new WeakHashMap<EntityManagerFactory, QueryCache>();
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Invalidator invalidator = new Invalidator();
+    private volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    private QueryCache()
+    {
+        super();
+        for (int i = 0; i < STRIPES; i++)
+        {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Writes through the EntityManagers created after the first call evict entries, and so do writes through those
+     * that cacheable queries run on.
+     */
+    public static QueryCache of(EntityManagerFactory emf)
+    {
+        synchronized (CACHES)
+        {
+            QueryCache cache = CACHES.get(emf);
+            if (cache == null)
+            {
+                cache = new QueryCache();
+                ((OpenJPAEntityManagerFactorySPI) OpenJPAPersistence.cast(emf)).addTransactionListener(
+                    cache.invalidator);
+                CACHES.put(emf, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Makes the writes of an EntityManager created before the cache evict entries as well.
+     */
+    void track(EntityManager em)
+    {
+        Broker broker = JPAFacadeHelper.toBroker(em);
+        synchronized (broker)
+        {
+            if (!broker.getTransactionListeners().contains(this.invalidator))
+            {
+                broker.addTransactionListener(this.invalidator);
+            }
+        }
+    }
+
+    public QueryCache maxEntries(int entries)
+    {
+        if (entries < 1)
+        {
+            throw new IllegalArgumentException("Maximum number of entries must be positive: " + entries);
+        }
+        this.maxEntries = entries;
+        return this;
+    }
+
+    public long getHitCount()
+    {
+        return this.hits.get();
+    }
+
+    public long getMissCount()
+    {
+        return this.misses.get();
+    }
+
+    public long getEvictionCount()
+    {
+        return this.evictions.get();
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for (Stripe stripe : this.stripes)
+        {
+            synchronized (stripe)
+            {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear()
+    {
+        for (Stripe stripe : this.stripes)
+        {
+            synchronized (stripe)
+            {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Evicts every entry whose query touches the entity type, its super types or its sub types.
+     */
+    public void evict(Class<?> entityType)
+    {
+        for (Stripe stripe : this.stripes)
+        {
+            synchronized (stripe)
+            {
+                Iterator<Entry> entries = stripe.values().iterator();
+                while (entries.hasNext())
+                {
+                    if (entries.next().touches(entityType))
+                    {
+                        entries.remove();
+                        this.evictions.incrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    <R> R get(Object key, Set<Class<?>> entityTypes, long ttlNanos, Callable<R> loader)
+    {
+        Stripe stripe = this.stripes[(key.hashCode() & Integer.MAX_VALUE) % STRIPES];
+        Entry entry;
+        boolean loading = false;
+        synchronized (stripe)
+        {
+            entry = stripe.get(key);
+            if (entry != null && entry.isExpired())
+            {
+                stripe.remove(key);
+                this.evictions.incrementAndGet();
+                entry = null;
+            }
+            if (entry == null)
+            {
+                entry = new Entry(new FutureTask<Object>((Callable<Object>) loader), entityTypes, ttlNanos);
+                stripe.put(key, entry);
+                loading = true;
+                this.misses.incrementAndGet();
+            }
+            else
+            {
+                this.hits.incrementAndGet();
+            }
+        }
+
+        if (loading)
+        {
+            entry.result.run();
+        }
+        try
+        {
+            return (R) entry.result.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while waiting for a cached query", e);
+        }
+        catch (ExecutionException e)
+        {
+            synchronized (stripe)
+            {
+                if (stripe.get(key) == entry)
+                {
+                    stripe.remove(key);
+                }
+            }
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new PersistenceException(e.getCause());
+        }
+    }
+
+    private static final class Entry
+    {
+        private final FutureTask<Object> result;
+        private final Set<Class<?>> entityTypes;
+        private final long expiresAt;
+
+        Entry(FutureTask<Object> result, Set<Class<?>> entityTypes, long ttlNanos)
+        {
+            super();
+            this.result = result;
+            this.entityTypes = entityTypes;
+            this.expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+        }
+
+        boolean isExpired()
+        {
+            return this.expiresAt != 0 && System.nanoTime() - this.expiresAt > 0;
+        }
+
+        boolean touches(Class<?> entityType)
+        {
+            for (Class<?> type : this.entityTypes)
+            {
+                if (type.isAssignableFrom(entityType) || entityType.isAssignableFrom(type))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final class Stripe extends LinkedHashMap<Object, Entry>
+    {
+        private static final long serialVersionUID = 1L;
+
+        Stripe()
+        {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest)
+        {
+            if (size() <= Math.max(1, maxEntries / STRIPES))
+            {
+                return false;
+            }
+            evictions.incrementAndGet();
+            return true;
+        }
+    }
+
+    private final class Invalidator extends AbstractTransactionListener
+    {
+        @Override
+        public void afterCommit(TransactionEvent event)
+        {
+            evictAll(event.getPersistedTypes());
+            evictAll(event.getUpdatedTypes());
+            evictAll(event.getDeletedTypes());
+        }
+
+        private void evictAll(Collection<?> entityTypes)
+        {
+            if (entityTypes != null)
+            {
+                for (Object entityType : entityTypes)
+                {
+                    evict((Class<?>) entityType);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.quintech.criteria;
+
+import java.security.CodeSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.Parameter;
+import javax.persistence.TypedQuery;
+
+import org.apache.openjpa.persistence.OpenJPAQuery;
+
+/**
+ * What happened to one query. The fingerprint describes the shape of the query (root entity, joined and fetched
+ * entities, predicate operators and sort keys) without its values, so all the runs of one shape share it. The query
+ * text, parameters and call site of executed queries are only available while the listeners handle the event.
+ */
+public final class QueryEvent
+{
+    public enum Type
+    {
+        EXECUTED, FAILED, CACHE_HIT, SHORT_CIRCUIT
+    }
+
+    private final Type type;
+    private final String terminal;
+    private final String fingerprint;
+    private final long buildNanos;
+    private final long executionNanos;
+    private final long rows;
+    private final RuntimeException exception;
+    private TypedQuery<?> query;
+    private Throwable origin;
+
+    QueryEvent(Type type, String terminal, String fingerprint, long buildNanos, long executionNanos, long rows,
+        RuntimeException exception, TypedQuery<?> query)
+    {
+        super();
+        this.type = type;
+        this.terminal = terminal;
+        this.fingerprint = fingerprint;
+        this.buildNanos = buildNanos;
+        this.executionNanos = executionNanos;
+        this.rows = rows;
+        this.exception = exception;
+        this.query = query;
+        this.origin = new Throwable();
+    }
+
+    void release()
+    {
+        this.query = null;
+        this.origin = null;
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    /**
+     * The kind of query run: list, range, count, exists, projection, page, stream, scan or chunk.
+     */
+    public String getTerminal()
+    {
+        return terminal;
+    }
+
+    public String getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    public long getBuildNanos()
+    {
+        return buildNanos;
+    }
+
+    public long getExecutionNanos()
+    {
+        return executionNanos;
+    }
+
+    /**
+     * Number of rows returned, or -1 when the rows are streamed.
+     */
+    public long getRows()
+    {
+        return rows;
+    }
+
+    public RuntimeException getException()
+    {
+        return exception;
+    }
+
+    /**
+     * The JPQL the provider runs; values are part of it unless the query was built parameterized.
+     */
+    public String getQueryString()
+    {
+        if (query instanceof OpenJPAQuery)
+        {
+            return ((OpenJPAQuery<?>) query).getQueryString();
+        }
+        return null;
+    }
+
+    /**
+     * Values bound to the named parameters of the query string.
+     */
+    public Map<String, Object> getParameters()
+    {
+        if (query == null)
+        {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+        for (Parameter<?> parameter : query.getParameters())
+        {
+            parameters.put(parameter.getName() != null ? parameter.getName() : String.valueOf(parameter.getPosition()),
+                query.isBound(parameter) ? query.getParameterValue(parameter) : null);
+        }
+        return parameters;
+    }
+
+    /**
+     * Innermost frame of the code that called the library, or null when it ran on a pool thread. The stack is taken
+     * when the event is created, before any listener runs, and its frames are only resolved when asked for.
+     */
+    public StackTraceElement getCallSite()
+    {
+        if (origin == null)
+        {
+            return null;
+        }
+        for (StackTraceElement frame : origin.getStackTrace())
+        {
+            String className = frame.getClassName();
+            if (!className.startsWith("java.") && !className.startsWith("javax.") && !className.startsWith("sun.")
+                && !isLibraryClass(className))
+            {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Classes of this package loaded from the library itself, so that callers sharing the package still count as
+     * callers.
+     */
+    private static boolean isLibraryClass(String className)
+    {
+        String library = QueryEvent.class.getPackage().getName() + ".";
+        if (!className.startsWith(library) || className.indexOf('.', library.length()) >= 0)
+        {
+            return false;
+        }
+        try
+        {
+            Class<?> frameClass = Class.forName(className, false, QueryEvent.class.getClassLoader());
+            CodeSource source = frameClass.getProtectionDomain().getCodeSource();
+            CodeSource librarySource = QueryEvent.class.getProtectionDomain().getCodeSource();
+            return source == null || librarySource == null || source.getLocation().equals(
+                librarySource.getLocation());
+        }
+        catch (ClassNotFoundException e)
+        {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return type + " " + terminal + " [" + fingerprint + "] build=" + buildNanos + "ns execution="
+            + executionNanos + "ns rows=" + rows;
+    }
+}
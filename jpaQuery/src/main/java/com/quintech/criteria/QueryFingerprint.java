@@ -0,0 +1,69 @@
+package com.quintech.criteria;
+
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Fetch;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.metamodel.Attribute;
+
+/**
+ * Shape of a query given to the listeners: root entity, joined and fetched entities, predicate operators and sort
+ * keys, without any value.
+ */
+final class QueryFingerprint
+{
+    private QueryFingerprint()
+    {
+        super();
+    }
+
+    static <T> String of(RootInfo<T> rootInfo)
+    {
+        StringBuilder fingerprint = new StringBuilder(rootInfo.getFrom().getJavaType().getSimpleName());
+        if (rootInfo.isDistinct())
+        {
+            fingerprint.insert(0, "DISTINCT ");
+        }
+        for (FromInfo<T, ?> join : rootInfo.getJoins())
+        {
+            From<?, ?> from = join.getFrom();
+            if (from instanceof Join)
+            {
+                fingerprint.append(((Join<?, ?>) from).getJoinType() == JoinType.LEFT ? " LEFT JOIN " : " JOIN ")
+                    .append(nameOf(((Join<?, ?>) from).getAttribute()));
+            }
+            else
+            {
+                fingerprint.append(", ").append(from.getJavaType().getSimpleName());
+            }
+        }
+        for (Fetch<?, ?> fetch : rootInfo.getFrom().getFetches())
+        {
+            fingerprint.append(" FETCH ").append(nameOf(fetch.getAttribute()));
+        }
+        String separator = " WHERE ";
+        for (String shape : rootInfo.getShapes())
+        {
+            fingerprint.append(separator).append(shape);
+            separator = " AND ";
+        }
+        separator = " ORDER BY ";
+        for (Order orderBy : rootInfo.getAllOrderBys())
+        {
+            Expression<?> key = orderBy.getExpression();
+            fingerprint.append(separator).append(key instanceof Path && ((Path<?>) key).getModel() instanceof Attribute
+                ? nameOf((Attribute<?, ?>) ((Path<?>) key).getModel()) : "?").append(
+                orderBy.isAscending() ? " ASC" : " DESC");
+            separator = ", ";
+        }
+        return fingerprint.toString();
+    }
+
+    static String nameOf(Attribute<?, ?> attribute)
+    {
+        return attribute.getDeclaringType().getJavaType().getSimpleName() + "." + attribute.getName();
+    }
+}
@@ -0,0 +1,141 @@
+package com.quintech.criteria;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.FlushModeType;
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
+
+import org.apache.openjpa.persistence.OpenJPAQuery;
+
+/**
+ * JDBC fetch size, timeout, flush mode, read-only and lock mode applied to the queries of a RootInfo. Each query
+ * starts from a copy of the library wide defaults set with {@link Query#setDefaultHints}; unset hints leave the
+ * provider defaults in place.
+ */
+public final class QueryHints
+{
+    static final String FETCH_BATCH_SIZE_HINT = "openjpa.FetchPlan.FetchBatchSize";
+    private static final String TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    private int fetchSize;
+    private int timeout;
+    private FlushModeType flushMode;
+    private boolean readOnly;
+    private LockModeType lockMode;
+
+    public QueryHints()
+    {
+        super();
+    }
+
+    public QueryHints(QueryHints hints)
+    {
+        super();
+        this.fetchSize = hints.fetchSize;
+        this.timeout = hints.timeout;
+        this.flushMode = hints.flushMode;
+        this.readOnly = hints.readOnly;
+        this.lockMode = hints.lockMode;
+    }
+
+    /**
+     * Rows the JDBC driver fetches per round trip.
+     */
+    public QueryHints fetchSize(int rows)
+    {
+        if (rows < 1)
+        {
+            throw new IllegalArgumentException("Fetch size must be positive: " + rows);
+        }
+        this.fetchSize = rows;
+        return this;
+    }
+
+    public QueryHints timeout(int milliseconds)
+    {
+        if (milliseconds < 1)
+        {
+            throw new IllegalArgumentException("Timeout must be positive: " + milliseconds);
+        }
+        this.timeout = milliseconds;
+        return this;
+    }
+
+    /**
+     * With COMMIT, pending changes of the persistence context are not flushed before the query runs.
+     */
+    public QueryHints flushMode(FlushModeType flushMode)
+    {
+        this.flushMode = flushMode;
+        return this;
+    }
+
+    /**
+     * The query ignores the uncommitted changes of the persistence context, so it never flushes them first; unless
+     * set otherwise the flush mode becomes COMMIT.
+     */
+    public QueryHints readOnly()
+    {
+        this.readOnly = true;
+        return this;
+    }
+
+    public QueryHints lockMode(LockModeType lockMode)
+    {
+        this.lockMode = lockMode;
+        return this;
+    }
+
+    int getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    boolean isReadOnly()
+    {
+        return readOnly;
+    }
+
+    LockModeType getLockMode()
+    {
+        return lockMode;
+    }
+
+    /**
+     * The hints as part of a cache key.
+     */
+    List<Object> toKey()
+    {
+        return Arrays.<Object> asList(fetchSize, timeout, flushMode, readOnly, lockMode);
+    }
+
+    void apply(TypedQuery<?> query)
+    {
+        if (fetchSize > 0)
+        {
+            query.setHint(FETCH_BATCH_SIZE_HINT, fetchSize);
+        }
+        if (timeout > 0)
+        {
+            query.setHint(TIMEOUT_HINT, timeout);
+        }
+        if (flushMode != null)
+        {
+            query.setFlushMode(flushMode);
+        }
+        else if (readOnly)
+        {
+            query.setFlushMode(FlushModeType.COMMIT);
+        }
+        if (readOnly && query instanceof OpenJPAQuery)
+        {
+            ((OpenJPAQuery<?>) query).setIgnoreChanges(true);
+        }
+        if (lockMode != null)
+        {
+            query.setLockMode(lockMode);
+        }
+    }
+}
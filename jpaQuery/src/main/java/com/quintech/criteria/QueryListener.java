@@ -0,0 +1,10 @@
+package com.quintech.criteria;
+
+/**
+ * Receives an event for every query run, answered from the cache or short-circuited. Listeners are called on the
+ * thread that ran the query and must be thread safe. Exceptions they throw are logged and do not reach the query.
+ */
+public interface QueryListener
+{
+    void handle(QueryEvent event);
+}
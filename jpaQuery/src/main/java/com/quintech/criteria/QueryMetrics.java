@@ -0,0 +1,81 @@
+package com.quintech.criteria;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Library wide query counters and QueryListener registry.
+ */
+public final class QueryMetrics
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryMetrics.class);
+    private static final AtomicLong SHORT_CIRCUITS = new AtomicLong();
+    private static final List<QueryListener> LISTENERS = new CopyOnWriteArrayList<QueryListener>();
+
+    private QueryMetrics()
+    {
+        super();
+    }
+
+    public static void addListener(QueryListener listener)
+    {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(QueryListener listener)
+    {
+        LISTENERS.remove(listener);
+    }
+
+    static boolean hasListeners()
+    {
+        return !LISTENERS.isEmpty();
+    }
+
+    /**
+     * A listener that fails is logged and skipped, so that neither the other listeners nor the query are affected.
+     */
+    static void publish(QueryEvent event)
+    {
+        try
+        {
+            for (QueryListener listener : LISTENERS)
+            {
+                try
+                {
+                    listener.handle(event);
+                }
+                catch (RuntimeException e)
+                {
+                    LOGGER.warn("Query listener " + listener + " failed on " + event, e);
+                }
+            }
+        }
+        finally
+        {
+            event.release();
+        }
+    }
+
+    static void shortCircuited()
+    {
+        SHORT_CIRCUITS.incrementAndGet();
+    }
+
+    /**
+     * Number of queries answered without a database round trip because their criteria cannot match any row.
+     */
+    public static long getShortCircuitCount()
+    {
+        return SHORT_CIRCUITS.get();
+    }
+
+    public static void reset()
+    {
+        SHORT_CIRCUITS.set(0);
+    }
+}
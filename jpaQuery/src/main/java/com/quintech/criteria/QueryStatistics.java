@@ -0,0 +1,108 @@
+package com.quintech.criteria;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default QueryListener keeping latency histograms and counters per terminal and query fingerprint.
+ */
+public final class QueryStatistics implements QueryListener
+{
+    private final ConcurrentMap<String, Shape> shapes = new ConcurrentHashMap<String, Shape>();
+
+    public static final class Shape
+    {
+        private final LatencyHistogram buildTimes = new LatencyHistogram();
+        private final LatencyHistogram executionTimes = new LatencyHistogram();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong cacheHits = new AtomicLong();
+        private final AtomicLong shortCircuits = new AtomicLong();
+
+        public LatencyHistogram getBuildTimes()
+        {
+            return buildTimes;
+        }
+
+        public LatencyHistogram getExecutionTimes()
+        {
+            return executionTimes;
+        }
+
+        public long getRows()
+        {
+            return rows.get();
+        }
+
+        public long getFailures()
+        {
+            return failures.get();
+        }
+
+        public long getCacheHits()
+        {
+            return cacheHits.get();
+        }
+
+        public long getShortCircuits()
+        {
+            return shortCircuits.get();
+        }
+    }
+
+    public void handle(QueryEvent event)
+    {
+        Shape shape = getShape(event.getTerminal() + " " + event.getFingerprint());
+        switch (event.getType())
+        {
+        case EXECUTED:
+            shape.buildTimes.record(event.getBuildNanos());
+            shape.executionTimes.record(event.getExecutionNanos());
+            if (event.getRows() > 0)
+            {
+                shape.rows.addAndGet(event.getRows());
+            }
+            break;
+        case FAILED:
+            shape.failures.incrementAndGet();
+            break;
+        case CACHE_HIT:
+            shape.cacheHits.incrementAndGet();
+            break;
+        case SHORT_CIRCUIT:
+            shape.shortCircuits.incrementAndGet();
+            break;
+        }
+    }
+
+    private Shape getShape(String key)
+    {
+        Shape shape = this.shapes.get(key);
+        if (shape == null)
+        {
+            Shape created = new Shape();
+            shape = this.shapes.putIfAbsent(key, created);
+            if (shape == null)
+            {
+                shape = created;
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Statistics keyed by the terminal followed by the query fingerprint.
+     */
+    public Map<String, Shape> getShapes()
+    {
+        return Collections.unmodifiableMap(this.shapes);
+    }
+
+    public void clear()
+    {
+        this.shapes.clear();
+    }
+}
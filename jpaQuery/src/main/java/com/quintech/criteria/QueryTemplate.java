@@ -0,0 +1,86 @@
+package com.quintech.criteria;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+
+import org.apache.openjpa.persistence.criteria.OpenJPACriteriaQuery;
+
+/**
+ * Immutable, compiled form of a query built through the fluent API. A template may be shared between threads and
+ * executed against any EntityManager of the factory it was built from. Values passed to {@link #bind} replace, in
+ * order, the values given to each predicate when the template was built; missing trailing values keep those
+ * defaults. Each criterion of a parameterized template therefore has a value, see {@link RootInfo#compile()}.
+ */
+public final class QueryTemplate<T>
+{
+    private final CriteriaQuery<T> criteria;
+    private final List<ParameterBinding> bindings;
+    private final QueryHints hints;
+
+    protected QueryTemplate(CriteriaQuery<T> criteria, List<ParameterBinding> bindings, QueryHints hints)
+    {
+        super();
+        if (criteria instanceof OpenJPACriteriaQuery)
+        {
+            ((OpenJPACriteriaQuery<T>) criteria).compile();
+        }
+        this.criteria = criteria;
+        this.bindings = Collections.unmodifiableList(new ArrayList<ParameterBinding>(bindings));
+        this.hints = new QueryHints(hints);
+    }
+
+    public int getParameterCount()
+    {
+        return bindings.size();
+    }
+
+    public TypedQuery<T> bind(EntityManager em, Object... values)
+    {
+        if (values.length > bindings.size())
+        {
+            throw new IllegalArgumentException("Template takes " + bindings.size() + " values but got "
+                + values.length);
+        }
+
+        TypedQuery<T> query;
+        synchronized (criteria)
+        {
+            query = em.createQuery(criteria);
+        }
+        hints.apply(query);
+
+        for (int i = 0; i < bindings.size(); i++)
+        {
+            if (i < values.length)
+            {
+                bindings.get(i).bind(query, values[i]);
+            }
+            else
+            {
+                bindings.get(i).bind(query);
+            }
+        }
+        return query;
+    }
+
+    public List<T> resultList(EntityManager em, Object... values)
+    {
+        return bind(em, values).getResultList();
+    }
+
+    public T singleResult(EntityManager em, Object... values)
+    {
+        List<T> resultList = bind(em, values).setMaxResults(1).getResultList();
+        if (resultList.size() > 0)
+        {
+            return resultList.get(0);
+        }
+
+        return null;
+    }
+}
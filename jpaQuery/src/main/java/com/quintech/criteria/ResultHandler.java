@@ -0,0 +1,6 @@
+package com.quintech.criteria;
+
+public interface ResultHandler<T>
+{
+    void handle(T result);
+}
@@ -0,0 +1,74 @@
+package com.quintech.criteria;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+
+/**
+ * Iterates a lazily loaded result list over an open cursor, detaching the entities already handed out every
+ * {@code detachEvery} rows so the persistence context does not grow with the size of the result. Entities that were
+ * managed before the iteration started are detached as well when they are part of the result.
+ */
+public final class ResultIterator<T> implements Iterator<T>, Closeable
+{
+    private final EntityManager em;
+    private final List<T> results;
+    private final Iterator<T> iterator;
+    private final int detachEvery;
+    private final List<T> processed;
+
+    protected ResultIterator(EntityManager em, List<T> results, int detachEvery)
+    {
+        super();
+        this.em = em;
+        this.results = results;
+        this.iterator = results.iterator();
+        this.detachEvery = detachEvery;
+        this.processed = new ArrayList<T>(detachEvery);
+    }
+
+    public boolean hasNext()
+    {
+        return iterator.hasNext();
+    }
+
+    public T next()
+    {
+        if (processed.size() >= detachEvery)
+        {
+            detachProcessed();
+        }
+
+        T result = iterator.next();
+        processed.add(result);
+        return result;
+    }
+
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public void close()
+    {
+        detachProcessed();
+        OpenJPAPersistence.close(results);
+    }
+
+    private void detachProcessed()
+    {
+        for (T result : processed)
+        {
+            if (result != null)
+            {
+                em.detach(result);
+            }
+        }
+        processed.clear();
+    }
+}
@@ -1,148 +1,40 @@
 package com.quintech.criteria;
 
-import java.util.Collection;
-
-import javax.persistence.criteria.Path;
 import javax.persistence.metamodel.SingularAttribute;
 
-public final class RootFieldCriteria<T, U>
+public final class RootFieldCriteria<T, U> extends FieldCriteria<T, U, FromInfo<T, U>>
 {
-    private final FromInfo<T, U> rootInfo;
-    private final SingularAttribute<U, ?> field;
-    private final SingularAttribute<?, ?> relatedField;
-
     public RootFieldCriteria(FromInfo<T, U> rootInfo, SingularAttribute<U, ?> field)
     {
-        super();
-        this.rootInfo = rootInfo;
-        this.field = field;
-        this.relatedField = null;
+        this(rootInfo, field, false);
     }
 
     public <R> RootFieldCriteria(FromInfo<T, U> rootInfo, SingularAttribute<U, R> field, SingularAttribute<R, ?> relatedField)
     {
-        super();
-        this.rootInfo = rootInfo;
-        this.field = field;
-        this.relatedField = relatedField;
-    }
-
-    public <V> FromInfo<T, U> equalTo(V value)
-    {
-        this.rootInfo.addPredicate(PredicateUtils.equalTo(this.rootInfo.getCriteriaBuilder(),
-            getField(), value));
-
-        return this.rootInfo;
-    }
-
-    @SuppressWarnings("unchecked")
-    protected <R> Path<?> getField()
-    {
-        if (relatedField == null)
-        {
-            return this.rootInfo.getFrom().get(field);
-        }
-        return ((Path<R>) this.rootInfo.getFrom().get(field)).get((SingularAttribute<R, ?>) relatedField);
-    }
-
-    @SuppressWarnings("unchecked")
-    public FromInfo<T, U> equalToIgnoreCase(String value)
-    {
-        this.rootInfo.addPredicate(PredicateUtils.equalToIgnoreCase(this.rootInfo.getCriteriaBuilder(),
-            (Path<String>) getField(), value));
-
-        return this.rootInfo;
-    }
-
-    @SuppressWarnings("unchecked")
-    public FromInfo<T, U> startsWith(String value)
-    {
-        this.rootInfo.addPredicate(PredicateUtils.startsWith(this.rootInfo.getCriteriaBuilder(),
-            (Path<String>) getField(), value));
-
-        return this.rootInfo;
+        this(rootInfo, field, relatedField, false);
     }
 
-    @SuppressWarnings("unchecked")
-    public FromInfo<T, U> startsWithIgnoreCase(String value)
+    /**
+     * With alternative set, the predicate is OR-ed with the last one added instead of being AND-ed with all of them.
+     */
+    RootFieldCriteria(FromInfo<T, U> rootInfo, SingularAttribute<U, ?> field, boolean alternative)
     {
-        this.rootInfo.addPredicate(PredicateUtils.startsWithIgnoreCase(this.rootInfo.getCriteriaBuilder(),
-            (Path<String>) getField(), value));
-
-        return this.rootInfo;
+        super(fromOf(rootInfo), rootInfo, field, null, alternative);
     }
 
-    @SuppressWarnings("unchecked")
-    public FromInfo<T, U> contains(String value)
+    <R> RootFieldCriteria(FromInfo<T, U> rootInfo, SingularAttribute<U, R> field, SingularAttribute<R, ?> relatedField,
+        boolean alternative)
     {
-        this.rootInfo.addPredicate(PredicateUtils.contains(this.rootInfo.getCriteriaBuilder(),
-            (Path<String>) getField(), value));
-
-        return this.rootInfo;
+        super(fromOf(rootInfo), rootInfo, field, relatedField, alternative);
     }
 
     @SuppressWarnings("unchecked")
-    public FromInfo<T, U> containsIgnoreCase(String value)
-    {
-        this.rootInfo.addPredicate(PredicateUtils.containsIgnoreCase(this.rootInfo.getCriteriaBuilder(),
-            (Path<String>) getField(), value));
-
-        return this.rootInfo;
-    }
-
-    public <V> FromInfo<T, U> isNullOrNotLessThan(V value)
-    {
-        if (value != null)
-        {
-            this.rootInfo.addPredicate(PredicateUtils.isNullOrNotLessThan(this.rootInfo.getCriteriaBuilder(),
-                getField(), value));
-        }
-
-        return this.rootInfo;
-    }
-
-    public <V> FromInfo<T, U> isNullOrNotBefore(V value)
-    {
-        return isNullOrNotLessThan(value);
-    }
-
-    public <V> FromInfo<T, U> notLessThan(V value)
-    {
-        if (value != null)
-        {
-            this.rootInfo.addPredicate(PredicateUtils.notLessThan(this.rootInfo.getCriteriaBuilder(),
-                getField(), value));
-        }
-
-        return this.rootInfo;
-    }
-
-    public <V> FromInfo<T, U> notBefore(V value)
+    private static <T, U> AbstractFromInfo<T, U> fromOf(FromInfo<T, U> rootInfo)
     {
-        return notLessThan(value);
-    }
-
-    public <V> FromInfo<T, U> notGreaterThan(V value)
-    {
-        if (value != null)
+        if (!(rootInfo instanceof AbstractFromInfo))
         {
-            this.rootInfo.addPredicate(PredicateUtils.notGreaterThan(this.rootInfo.getCriteriaBuilder(),
-                getField(), value));
+            throw new IllegalArgumentException("Criteria can only be added to an entity of a query built by Query");
         }
-
-        return this.rootInfo;
-    }
-
-    public <V> FromInfo<T, U> notAfter(V value)
-    {
-        return notGreaterThan(value);
-    }
-
-    public <V> FromInfo<T, U> in(Collection<V> values)
-    {
-        this.rootInfo.addPredicate(PredicateUtils.in(this.rootInfo.getCriteriaBuilder(), getField(),
-            values));
-
-        return this.rootInfo;
+        return (AbstractFromInfo<T, U>) rootInfo;
     }
 }
@@ -1,75 +1,308 @@
 package com.quintech.criteria;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.FlushModeType;
+import javax.persistence.LockModeType;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Order;
+import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.criteria.Subquery;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.IdentifiableType;
+import javax.persistence.metamodel.PluralAttribute;
 import javax.persistence.metamodel.SingularAttribute;
 
+import org.apache.commons.lang.ClassUtils;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.persistence.OpenJPAQuery;
+import org.apache.openjpa.persistence.jdbc.ResultSetType;
+
 import com.quintech.criteria.JoinInfo.AndInfo;
 
 
-public final class RootInfo<T> implements FromInfo<T, T>
+public final class RootInfo<T> extends AbstractFromInfo<T, T> implements FromInfo<T, T>
 {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_IN_CHUNK_SIZE = 500;
+
+    static final String RESULT_SET_TYPE_HINT = "openjpa.FetchPlan.ResultSetType";
+
     private final RootInfo<?> rootInfo;
     protected final EntityManager em;
+    private final EntityManagerFactory emf;
     private final CriteriaBuilder builder;
-    private final CriteriaQuery<T> criteria;
+    private final CriteriaQuery<Object> criteria;
     private final Root<T> fromEntity;
     private final List<Predicate> predicates = new ArrayList<Predicate>();
     private final List<Order> orderBys = new ArrayList<Order>();
     private final List<FromInfo<T, ?>> joins = new ArrayList<FromInfo<T, ?>>();
+    private final List<ParameterBinding> bindings = new ArrayList<ParameterBinding>();
+    private final List<PredicateGroup<T, ?, ?>> groups = new ArrayList<PredicateGroup<T, ?, ?>>(0);
+    private final List<Root<?>> subqueryRoots = new ArrayList<Root<?>>(0);
+    private final boolean parameterized;
     private boolean distinct;
+    private boolean fetchesCollection;
+    private boolean compiled;
+    private int parameterCount;
+    private int unboundValues;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int inChunkSize = DEFAULT_IN_CHUNK_SIZE;
+    private ExecutorService chunkExecutor;
+    private InChunks inChunks;
+    private Object idLookup;
+    private final Constraints constraints = new Constraints();
+    private final List<String> shapes = new ArrayList<String>();
+    private Prefetch<T> prefetch;
+    private CacheLookup<T> cacheLookup;
+    private Executor executor;
+    private QueryHints hints = Query.getDefaultHints();
+    private boolean ownHints;
 
     protected RootInfo(EntityManager em, Class<T> entityClass)
+    {
+        this(em, entityClass, false);
+    }
+
+    protected RootInfo(EntityManager em, Class<T> entityClass, boolean parameterized)
     {
         super();
         this.rootInfo = null;
         this.em = em;
+        this.emf = null;
         this.builder = em.getCriteriaBuilder();
-        this.criteria = builder.createQuery(entityClass);
+        this.criteria = builder.createQuery();
+        this.fromEntity = criteria.from(entityClass);
+        this.parameterized = parameterized;
+    }
+
+    protected RootInfo(EntityManagerFactory emf, Class<T> entityClass)
+    {
+        this(emf, entityClass, true);
+    }
+
+    protected RootInfo(EntityManagerFactory emf, Class<T> entityClass, boolean parameterized)
+    {
+        super();
+        this.rootInfo = null;
+        this.em = null;
+        this.emf = emf;
+        this.builder = emf.getCriteriaBuilder();
+        this.criteria = builder.createQuery();
         this.fromEntity = criteria.from(entityClass);
+        this.parameterized = parameterized;
     }
 
     protected <U> RootInfo(RootInfo<U> rootInfo, Class<T> entityClass)
     {
         super();
         this.em = null;
+        this.emf = null;
         this.builder = null;
         this.criteria = null;
         this.rootInfo = rootInfo;
         this.fromEntity = rootInfo.criteria.from(entityClass);
+        this.parameterized = rootInfo.parameterized;
     }
 
-    private TypedQuery<T> createQuery()
+    /**
+     * Sized for the predicates of the joins and one more added by the caller, so that it never grows.
+     */
+    List<Predicate> getAllPredicates()
+    {
+        if (this.joins.isEmpty() && this.groups.isEmpty())
+        {
+            List<Predicate> allPredicates = new ArrayList<Predicate>(this.predicates.size() + 1);
+            allPredicates.addAll(this.predicates);
+            return allPredicates;
+        }
+
+        int size = this.predicates.size() + this.groups.size() + 1;
+        for (int i = 0; i < this.joins.size(); i++)
+        {
+            size += this.joins.get(i).getPredicates().size();
+        }
+        List<Predicate> allPredicates = new ArrayList<Predicate>(size);
+        allPredicates.addAll(this.predicates);
+        for (int i = 0; i < this.joins.size(); i++)
+        {
+            allPredicates.addAll(this.joins.get(i).getPredicates());
+        }
+        for (int i = 0; i < this.groups.size(); i++)
+        {
+            Predicate group = this.groups.get(i).toPredicate();
+            if (group != null)
+            {
+                allPredicates.add(group);
+            }
+        }
+        return allPredicates;
+    }
+
+    /**
+     * All the predicates but the chunked IN list, which each chunk query replaces by its own chunk.
+     */
+    List<Predicate> getFilterPredicates()
+    {
+        List<Predicate> allPredicates = getAllPredicates();
+        for (int i = 0; i < allPredicates.size(); i++)
+        {
+            if (allPredicates.get(i) == this.inChunks.toPredicate())
+            {
+                allPredicates.remove(i);
+                break;
+            }
+        }
+        return allPredicates;
+    }
+
+    /**
+     * Not to be modified: without joins this is the list of the root.
+     */
+    List<Order> getAllOrderBys()
     {
-        List<Predicate> allPredicates = new ArrayList<Predicate>(this.predicates);
+        if (this.joins.isEmpty())
+        {
+            return this.orderBys;
+        }
+
         List<Order> allOrderBys = new ArrayList<Order>(this.orderBys);
-        for (FromInfo<T, ?> join : joins)
+        for (int i = 0; i < this.joins.size(); i++)
         {
-            allPredicates.addAll(join.getPredicates());
-            allOrderBys.addAll(join.getOrderBys());
+            allOrderBys.addAll(this.joins.get(i).getOrderBys());
         }
+        return allOrderBys;
+    }
 
-        if (!allOrderBys.isEmpty())
+    CriteriaQuery<Object> buildCriteria(List<Predicate> allPredicates, List<Order> allOrderBys)
+    {
+        if (this.compiled)
         {
-            criteria.orderBy(allOrderBys);
+            throw new IllegalStateException("Query has already been compiled into a QueryTemplate");
         }
 
-        if (!allPredicates.isEmpty())
+        if (allPredicates.isEmpty())
+        {
+            criteria.where((Expression<Boolean>) null);
+        }
+        else
         {
             criteria.where(allPredicates.toArray(new Predicate[allPredicates.size()]));
         }
+        criteria.orderBy(allOrderBys.isEmpty() ? null : allOrderBys);
+        return criteria.distinct(this.distinct);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypedQuery<T> createQuery()
+    {
+        buildCriteria(getAllPredicates(), getAllOrderBys()).select(this.fromEntity);
+        return (TypedQuery<T>) (TypedQuery<?>) createQuery(criteria);
+    }
+
+    TypedQuery<Object> createQuery(CriteriaQuery<Object> criteria)
+    {
+        return createQuery(getEntityManager(), criteria);
+    }
+
+    EntityManager getEntityManager()
+    {
+        EntityManager asyncEm = AsyncExecution.getEntityManager();
+        if (asyncEm != null)
+        {
+            return asyncEm;
+        }
+        if (this.em == null)
+        {
+            throw new IllegalStateException("Query has no EntityManager; use the asynchronous terminals or compile() it"
+                + " and bind the template instead");
+        }
+        return this.em;
+    }
+
+    EntityManagerFactory getEntityManagerFactory()
+    {
+        return this.em != null ? this.em.getEntityManagerFactory() : this.emf;
+    }
+
+    private TypedQuery<Object> createQuery(EntityManager em, CriteriaQuery<Object> criteria)
+    {
+        TypedQuery<Object> query = em.createQuery(criteria);
+        this.hints.apply(query);
+        for (ParameterBinding binding : bindings)
+        {
+            binding.bind(query);
+        }
+        return query;
+    }
+
+    /**
+     * OpenJPA reads the criteria when the query first runs unless it is compiled, so queries run by other threads
+     * are compiled while the criteria is still locked.
+     */
+    TypedQuery<Object> createCompiledQuery(EntityManager em, CriteriaQuery<Object> criteria)
+    {
+        TypedQuery<Object> query = createQuery(em, criteria);
+        if (query instanceof OpenJPAQuery)
+        {
+            ((OpenJPAQuery<?>) query).compile();
+        }
+        return query;
+    }
 
-        criteria.select(this.fromEntity).distinct(this.distinct);
-        return em.createQuery(criteria);
+    /**
+     * Values are bound to a template by position, so every criterion of a parameterized template needs a value.
+     * Templates run a single statement with the hints of the query; since they are not cached, prefetch nothing and
+     * do not de-duplicate the rows of fetched collections, such queries are refused. Nor do templates publish query
+     * events, run one query per IN list chunk, answer id lookups with find or skip contradictory criteria.
+     */
+    @SuppressWarnings("unchecked")
+    public QueryTemplate<T> compile()
+    {
+        if (this.parameterized && this.unboundValues > 0)
+        {
+            throw new IllegalStateException("Templates cannot bind criteria given no value, such as equalTo(null) or"
+                + " an empty IN list");
+        }
+        if (this.cacheLookup != null || this.prefetch != null || this.fetchesCollection)
+        {
+            throw new IllegalStateException("Templates are not cached, prefetch no collection and do not de-duplicate"
+                + " fetched collections");
+        }
+        buildCriteria(getAllPredicates(), getAllOrderBys()).select(this.fromEntity);
+        QueryTemplate<T> template = new QueryTemplate<T>((CriteriaQuery<T>) (CriteriaQuery<?>) criteria, bindings,
+            this.hints);
+        this.compiled = true;
+        return template;
     }
 
     protected void addJoin(FromInfo<T, ?> join)
@@ -91,6 +324,115 @@ public final class RootInfo<T> implements FromInfo<T, T>
         }
     }
 
+    void addAlternative(Predicate predicate)
+    {
+        abandonConstraints(orWithLast(getCriteriaBuilder(), this.predicates, predicate));
+    }
+
+    /**
+     * Replaces the last predicate of the list by its disjunction with the given one and returns the replaced predicate.
+     */
+    static Predicate orWithLast(CriteriaBuilder builder, List<Predicate> predicates, Predicate predicate)
+    {
+        if (predicates.isEmpty())
+        {
+            throw new IllegalStateException("or() must follow a predicate on the same entity");
+        }
+        int last = predicates.size() - 1;
+        return predicates.set(last, builder.or(predicates.get(last), predicate));
+    }
+
+    void abandonConstraints(Predicate replaced)
+    {
+        if (this.rootInfo != null)
+        {
+            this.rootInfo.abandonConstraints(replaced);
+            return;
+        }
+        this.constraints.abandon(replaced);
+        this.idLookup = null;
+        if (this.inChunks != null && replaced == this.inChunks.toPredicate())
+        {
+            this.inChunks = null;
+        }
+    }
+
+    void addGroup(PredicateGroup<T, ?, ?> group)
+    {
+        this.groups.add(group);
+    }
+
+    public boolean isParameterized()
+    {
+        return this.parameterized;
+    }
+
+    <V> Expression<V> valueOf(Class<V> type, V value)
+    {
+        return valueOf(type, value, ValueFormat.AS_IS);
+    }
+
+    @SuppressWarnings("unchecked")
+    <V> Expression<V> valueOf(Class<V> type, V value, ValueFormat format)
+    {
+        if (this.rootInfo != null)
+        {
+            return this.rootInfo.valueOf(type, value, format);
+        }
+
+        if (!this.parameterized)
+        {
+            V formatted = (V) format.format(value);
+            return formatted == null ? this.builder.nullLiteral(type) : this.builder.literal(formatted);
+        }
+
+        ParameterExpression<V> parameter = newParameter(type);
+        bindings.add(new ParameterBinding(parameter, format, value));
+        return parameter;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> ParameterExpression<V> newParameter(Class<V> type)
+    {
+        return this.builder.parameter((Class<V>) ClassUtils.primitiveToWrapper(type), "p" + parameterCount++);
+    }
+
+    /**
+     * When parameterized, the list is padded to the next power of two by repeating the last value so that IN
+     * lists of similar size share the same query text.
+     */
+    <V> Expression<?>[] valuesOf(Class<V> type, Collection<? extends V> values)
+    {
+        if (this.rootInfo != null)
+        {
+            return this.rootInfo.valuesOf(type, values);
+        }
+
+        int size = values.size();
+        if (this.parameterized && size == 0)
+        {
+            addUnboundValue();
+        }
+        if (!this.parameterized || size == 0)
+        {
+            Expression<?>[] literals = new Expression<?>[size];
+            Iterator<? extends V> iterator = values.iterator();
+            for (int i = 0; i < size; i++)
+            {
+                literals[i] = valueOf(type, iterator.next());
+            }
+            return literals;
+        }
+
+        ParameterExpression<?>[] parameters = new ParameterExpression<?>[Integer.highestOneBit(size * 2 - 1)];
+        for (int i = 0; i < parameters.length; i++)
+        {
+            parameters[i] = newParameter(type);
+        }
+        bindings.add(new ParameterBinding(parameters, values));
+        return parameters;
+    }
+
     public List<Predicate> getPredicates()
     {
         return Collections.unmodifiableList(predicates);
@@ -103,66 +445,1051 @@ public final class RootInfo<T> implements FromInfo<T, T>
 
     public List<T> resultList()
     {
-        return createQuery().getResultList();
+        if (isUnsatisfiable("list"))
+        {
+            return new ArrayList<T>();
+        }
+        if (isIdLookup())
+        {
+            return prefetched(find());
+        }
+        if (isCached())
+        {
+            return new ArrayList<T>(this.cacheLookup.get(this.fromEntity, new Callable<List<T>>()
+            {
+                public List<T> call()
+                {
+                    return RootInfo.this.cacheLookup.detachCopies(prefetched(loadResultList()));
+                }
+            }, "list"));
+        }
+        return prefetched(loadResultList());
+    }
+
+    private List<T> loadResultList()
+    {
+        if (this.inChunks != null)
+        {
+            return chunked().resultList(0);
+        }
+        long started = System.nanoTime();
+        return getResultList("list", createQuery(), started);
     }
 
-    public <J> AndInfo<T, J> andFrom(Class<J> joinClass)
+    private List<T> getResultList(String terminal, TypedQuery<T> query, long started)
     {
-        return new AndInfo<T, J>(this, joinClass);
+        List<T> results = execute(terminal, query, started);
+        if (!this.fetchesCollection)
+        {
+            return results;
+        }
+        return new ArrayList<T>(new LinkedHashSet<T>(results));
     }
 
-    public T singleResult()
+    private List<T> getResultList(final int offset, final int maxResults)
     {
-        List<T> resultList = createQuery().setMaxResults(1).getResultList();
-        if (resultList.size() > 0)
+        if (isUnsatisfiable("range"))
         {
-            return resultList.get(0);
+            return new ArrayList<T>();
+        }
+        if (offset == 0 && maxResults > 0 && isIdLookup())
+        {
+            return prefetched(find());
         }
+        if (isCached())
+        {
+            return new ArrayList<T>(this.cacheLookup.get(this.fromEntity, new Callable<List<T>>()
+            {
+                public List<T> call()
+                {
+                    return RootInfo.this.cacheLookup.detachCopies(prefetched(loadResultList(offset, maxResults)));
+                }
+            }, "range", offset, maxResults));
+        }
+        return prefetched(loadResultList(offset, maxResults));
+    }
 
-        return null;
+    @SuppressWarnings("unchecked")
+    private List<T> loadResultList(int offset, int maxResults)
+    {
+        if (this.inChunks != null)
+        {
+            List<T> results = chunked().resultList((int) Math.min((long) offset + maxResults,
+                Integer.MAX_VALUE));
+            return new ArrayList<T>(results.subList(Math.min(offset, results.size()),
+                (int) Math.min((long) offset + maxResults, results.size())));
+        }
+        long started = System.nanoTime();
+        if (!this.fetchesCollection)
+        {
+            return execute("range", createQuery().setFirstResult(offset).setMaxResults(maxResults), started);
+        }
+
+        Path<?> id = this.fromEntity.get(getIdAttribute(this.fromEntity));
+        List<Predicate> allPredicates = getAllPredicates();
+        buildCriteria(allPredicates, getAllOrderBys()).select(id);
+        List<Object> ids = execute("range",
+            createQuery(criteria).setFirstResult(offset).setMaxResults(maxResults), started);
+        if (ids.isEmpty())
+        {
+            return new ArrayList<T>();
+        }
+
+        started = System.nanoTime();
+        allPredicates.add(id.in(ids));
+        buildCriteria(allPredicates, getAllOrderBys()).select(this.fromEntity);
+        return getResultList("range", (TypedQuery<T>) (TypedQuery<?>) createQuery(criteria), started);
     }
 
-    public <V> RootFieldCriteria<T, T> with(SingularAttribute<T, ? extends V> field)
+    public <J> AssociationInfo<T, J> join(SingularAttribute<? super T, J> attribute)
     {
-        return new RootFieldCriteria<T, T>(this, field);
+        return new AssociationInfo<T, J>(this, this.fromEntity.join(attribute, JoinType.INNER));
     }
 
-    public <R, V> RootFieldCriteria<T, T> with(SingularAttribute<T, R> field,
-        SingularAttribute<R, ? extends V> relatedField)
+    public <J> AssociationInfo<T, J> join(PluralAttribute<? super T, ?, J> attribute)
     {
-        return new RootFieldCriteria<T, T>(this, field, relatedField);
+        Join<T, J> join = this.fromEntity.join(attribute.getName(), JoinType.INNER);
+        return new AssociationInfo<T, J>(this, join);
     }
 
-    public <V> RootFieldCriteria<T, T> and(SingularAttribute<T, ? extends V> field)
+    public <J> AssociationInfo<T, J> leftJoin(SingularAttribute<? super T, J> attribute)
     {
-        return with(field);
+        return new AssociationInfo<T, J>(this, this.fromEntity.join(attribute, JoinType.LEFT));
     }
 
-    public <R, V> RootFieldCriteria<T, T> and(SingularAttribute<T, R> field,
-        SingularAttribute<R, ? extends V> relatedField)
+    public <J> AssociationInfo<T, J> leftJoin(PluralAttribute<? super T, ?, J> attribute)
     {
-        return new RootFieldCriteria<T, T>(this, field, relatedField);
+        Join<T, J> join = this.fromEntity.join(attribute.getName(), JoinType.LEFT);
+        return new AssociationInfo<T, J>(this, join);
     }
 
-    public <V> RootInfo<T> descendingBy(SingularAttribute<T, ? extends V> field)
+    public RootInfo<T> fetch(SingularAttribute<? super T, ?> attribute)
     {
-        orderBys.add(getCriteriaBuilder().desc(fromEntity.get(field)));
+        this.fromEntity.fetch(attribute, attribute.isOptional() ? JoinType.LEFT : JoinType.INNER);
         return this;
     }
 
-    public <V> RootInfo<T> ascendingBy(SingularAttribute<T, ? extends V> field)
+    /**
+     * Fetching a collection repeats the root row per element, so results are de-duplicated after loading. Row limits
+     * are applied to the ids of the root in a first query so that fetched collections are never truncated.
+     */
+    public RootInfo<T> fetch(PluralAttribute<? super T, ?, ?> attribute)
     {
-        orderBys.add(getCriteriaBuilder().asc(fromEntity.get(field)));
+        this.fromEntity.fetch(attribute, JoinType.LEFT);
+        this.fetchesCollection = true;
         return this;
     }
 
-    public void addOrderBy(Order order)
+    /**
+     * Loads the collection of the results after the query has run, with a fetch join on the ids of the results in IN
+     * lists of the chunk size. Unlike fetch() the rows of the query are not multiplied, and unlike lazy loading there
+     * is no query per result. The prefetch query still repeats the columns of an owner for each element of its
+     * collection, which keeps the collection managed by the provider. Detached results, such as those of parallel
+     * chunks, are replaced by the instances the prefetch query makes managed.
+     */
+    public RootInfo<T> prefetch(PluralAttribute<? super T, ?, ?> attribute)
     {
-        if (order != null)
+        if (this.prefetch == null)
         {
-            orderBys.add(order);
+            this.prefetch = new Prefetch<T>(this);
+        }
+        this.prefetch.add(attribute);
+        return this;
+    }
+
+    List<T> prefetched(List<T> results)
+    {
+        return this.prefetch == null ? results : this.prefetch.load(results);
+    }
+
+    List<PluralAttribute<? super T, ?, ?>> getPrefetches()
+    {
+        return this.prefetch == null ? Collections.<PluralAttribute<? super T, ?, ?>> emptyList()
+            : this.prefetch.getAttributes();
+    }
+
+    /**
+     * IN lists with more distinct values than the chunk size are split, and the list, count, exists and row limited
+     * terminals run one query per chunk. Only the first such IN list of a query is split, and not once it is OR-ed
+     * with another predicate. The other terminals keep a single statement with one IN per chunk. Must be set before
+     * the IN criteria are added.
+     */
+    public RootInfo<T> inChunksOf(int size)
+    {
+        if (size < 1)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive: " + size);
+        }
+        this.inChunkSize = size;
+        return this;
+    }
+
+    /**
+     * Runs IN list chunks on the executor, each with its own EntityManager from the same factory. The returned
+     * entities are then detached.
+     */
+    public RootInfo<T> inParallel(ExecutorService executor)
+    {
+        this.chunkExecutor = executor;
+        return this;
+    }
+
+    void addIn(Expression<?> expression, Collection<?> values)
+    {
+        addIn(this, expression, values);
+    }
+
+    /**
+     * The IN predicate goes to the entity its criteria were given on, so that or() finds it there. A list split into
+     * chunks is also put there as a whole; once OR-ed with another predicate it is no longer split.
+     */
+    @SuppressWarnings("unchecked")
+    void addIn(AbstractFromInfo<?, ?> target, Expression<?> expression, Collection<?> values)
+    {
+        if (this.rootInfo != null)
+        {
+            this.rootInfo.addIn(target, expression, values);
+            return;
+        }
+
+        Set<Object> distinctValues = new LinkedHashSet<Object>(values);
+        if (this.inChunks != null || distinctValues.size() <= this.inChunkSize)
+        {
+            Predicate in = PredicateUtils.in(this.builder, expression,
+                valuesOf((Class<Object>) expression.getJavaType(), values));
+            if (values.isEmpty())
+            {
+                this.constraints.never(in);
+            }
+            target.addPredicate(in);
+            return;
+        }
+        this.inChunks = new InChunks(this.builder, expression, distinctValues, this.inChunkSize, this.parameterized);
+        target.addPredicate(this.inChunks.toPredicate());
+    }
+
+    void addShape(String shape)
+    {
+        if (this.rootInfo != null)
+        {
+            this.rootInfo.addShape(shape);
+            return;
+        }
+        this.shapes.add(shape);
+    }
+
+    void addUnboundValue()
+    {
+        if (this.rootInfo != null)
+        {
+            this.rootInfo.addUnboundValue();
+            return;
+        }
+        this.unboundValues++;
+    }
+
+    void addRange(Path<?> path, Object lowest, Object highest)
+    {
+        if (this.rootInfo != null)
+        {
+            this.rootInfo.addRange(path, lowest, highest);
+            return;
+        }
+        this.constraints.addRange(path, lowest, highest);
+        if (lowest != null && lowest == highest && path.getParentPath() == this.fromEntity
+            && path.getModel() instanceof SingularAttribute && ((SingularAttribute<?, ?>) path.getModel()).isId()
+            && ClassUtils.primitiveToWrapper(path.getJavaType()).isInstance(lowest))
+        {
+            this.idLookup = lowest;
+        }
+    }
+
+    /**
+     * A lone equality on the id is answered by EntityManager.find, which returns the managed entity, or the one of the
+     * second level cache, without running SQL.
+     */
+    private boolean isIdLookup()
+    {
+        return this.idLookup != null && this.predicates.size() == 1 && this.joins.isEmpty() && this.groups.isEmpty()
+            && this.inChunks == null && this.orderBys.isEmpty() && this.fromEntity.getFetches().isEmpty()
+            && !this.parameterized && !this.hints.isReadOnly() && this.hints.getLockMode() == null;
+    }
+
+    private List<T> find()
+    {
+        long started = System.nanoTime();
+        T entity = getEntityManager().find(this.fromEntity.getJavaType(), this.idLookup);
+        List<T> results = new ArrayList<T>(1);
+        if (entity != null)
+        {
+            results.add(entity);
+        }
+        publish(QueryEvent.Type.EXECUTED, "find", 0, System.nanoTime() - started, results.size(), null, null);
+        return results;
+    }
+
+    /**
+     * Entities with the given ids that match the criteria, in the order of the ids. Without other criteria those
+     * already managed by the persistence context are taken from it; the others are loaded with IN lists of the chunk
+     * size.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> findAll(Collection<?> ids)
+    {
+        if (isUnsatisfiable("find") || ids.isEmpty())
+        {
+            return new ArrayList<T>();
+        }
+        Map<Object, T> found = new HashMap<Object, T>(ids.size() * 4 / 3 + 1);
+        List<Object> missing = new ArrayList<Object>(ids.size());
+        boolean plain = this.predicates.isEmpty() && this.joins.isEmpty() && this.groups.isEmpty()
+            && this.inChunks == null && !this.hints.isReadOnly() && this.hints.getLockMode() == null;
+        OpenJPAEntityManager openJpaEm = OpenJPAPersistence.cast(getEntityManager());
+        for (Object id : new LinkedHashSet<Object>(ids))
+        {
+            T entity = plain ? openJpaEm.findCached(this.fromEntity.getJavaType(), id) : null;
+            if (entity != null)
+            {
+                found.put(id, entity);
+            }
+            else
+            {
+                missing.add(id);
+            }
+        }
+
+        Path<?> id = this.fromEntity.get(getIdAttribute(this.fromEntity));
+        for (int from = 0; from < missing.size(); from += this.inChunkSize)
+        {
+            long started = System.nanoTime();
+            List<Predicate> allPredicates = getAllPredicates();
+            allPredicates.add(id.in(missing.subList(from, Math.min(from + this.inChunkSize, missing.size()))));
+            buildCriteria(allPredicates, Collections.<Order> emptyList()).select(
+                getCriteriaBuilder().array(id, this.fromEntity));
+            for (Object row : execute("find", createQuery(criteria), started))
+            {
+                found.put(((Object[]) row)[0], (T) ((Object[]) row)[1]);
+            }
+        }
+
+        List<T> results = new ArrayList<T>(found.size());
+        for (Object key : new LinkedHashSet<Object>(ids))
+        {
+            T entity = found.get(key);
+            if (entity != null)
+            {
+                results.add(entity);
+            }
         }
+        return results;
+    }
+
+    /**
+     * Criteria with an empty IN list, different equalities or a lower bound above the upper bound on the same
+     * attribute cannot match any row; such queries are answered without a database round trip.
+     */
+    boolean isUnsatisfiable(String terminal)
+    {
+        if (!this.constraints.isUnsatisfiable())
+        {
+            return false;
+        }
+        QueryMetrics.shortCircuited();
+        publish(QueryEvent.Type.SHORT_CIRCUIT, terminal, 0, 0, 0, null, null);
+        return true;
+    }
+
+    public RootInfo<T> cacheable()
+    {
+        return cacheable(0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Caches the results of the list, single result, count, exists and projection terminals in the QueryCache of the
+     * EntityManagerFactory. Cached entities are detached copies shared by all callers and must not be modified. A
+     * time to live of zero keeps the entries until they are evicted. Queries with a lock mode are never cached, since
+     * the locks must be taken.
+     */
+    public RootInfo<T> cacheable(long ttl, TimeUnit unit)
+    {
+        QueryCache cache = QueryCache.of(getEntityManagerFactory());
+        if (this.em != null)
+        {
+            cache.track(this.em);
+        }
+        this.cacheLookup = new CacheLookup<T>(this, cache, unit.toNanos(ttl));
+        return this;
+    }
 
+    public RootInfo<T> batchSize(int rows)
+    {
+        if (rows < 1)
+        {
+            throw new IllegalArgumentException("Batch size must be positive: " + rows);
+        }
+        this.batchSize = rows;
+        return this;
+    }
+
+    public RootInfo<T> fetchSize(int rows)
+    {
+        getOwnHints().fetchSize(rows);
+        return this;
+    }
+
+    public RootInfo<T> timeout(int milliseconds)
+    {
+        getOwnHints().timeout(milliseconds);
+        return this;
+    }
+
+    public RootInfo<T> flushMode(FlushModeType flushMode)
+    {
+        getOwnHints().flushMode(flushMode);
+        return this;
+    }
+
+    public RootInfo<T> readOnly()
+    {
+        getOwnHints().readOnly();
+        return this;
+    }
+
+    public RootInfo<T> lockMode(LockModeType lockMode)
+    {
+        getOwnHints().lockMode(lockMode);
+        return this;
+    }
+
+    private QueryHints getOwnHints()
+    {
+        if (!this.ownHints)
+        {
+            this.hints = new QueryHints(this.hints);
+            this.ownHints = true;
+        }
+        return this.hints;
+    }
+
+    /**
+     * Streams fetch their batches in one round trip unless a fetch size is given.
+     */
+    int getFetchSize()
+    {
+        return this.hints.getFetchSize() > 0 ? this.hints.getFetchSize() : this.batchSize;
+    }
+
+    public ResultIterator<T> resultIterator()
+    {
+        if (isUnsatisfiable("stream"))
+        {
+            return new ResultIterator<T>(getEntityManager(), new ArrayList<T>(), this.batchSize);
+        }
+        long started = System.nanoTime();
+        TypedQuery<T> query = createQuery();
+        query.setHint(QueryHints.FETCH_BATCH_SIZE_HINT, getFetchSize());
+        query.setHint(RESULT_SET_TYPE_HINT, ResultSetType.FORWARD_ONLY);
+        return new ResultIterator<T>(getEntityManager(), execute("stream", query, started, false), this.batchSize);
+    }
+
+    public long forEach(ResultHandler<? super T> handler)
+    {
+        return handleAll(resultIterator(), handler);
+    }
+
+    static <T> long handleAll(ResultIterator<T> results, ResultHandler<? super T> handler)
+    {
+        long rows = 0;
+        try
+        {
+            while (results.hasNext())
+            {
+                handler.handle(results.next());
+                rows++;
+            }
+        }
+        finally
+        {
+            results.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Splits the range between the lowest and highest id into partitions and streams them concurrently, each on its
+     * own EntityManager, on the executor of the query or else on a pool with at most one thread per processor, where
+     * the other partitions wait for a thread. The handler is called from all the partition threads at once and must
+     * be thread safe. Requires an integral id.
+     */
+    public long parallelScan(int partitions, ResultHandler<? super T> handler)
+    {
+        if (partitions < 1)
+        {
+            throw new IllegalArgumentException("Number of partitions must be positive: " + partitions);
+        }
+        if (isUnsatisfiable("scan"))
+        {
+            return 0;
+        }
+        return new ParallelScan<T>(this, this.executor).run(partitions, handler);
+    }
+
+    public Page<T> firstPage(int size)
+    {
+        return new KeysetPaging<T>(this).seek(null, size);
+    }
+
+    public Page<T> pageAfter(Page<T> previous)
+    {
+        if (previous.getLastKey() == null)
+        {
+            return previous;
+        }
+        return new KeysetPaging<T>(this).seek(previous.getLastKey(), previous.getSize());
+    }
+
+    public Page<T> pageAfter(T lastRow, int size)
+    {
+        KeysetPaging<T> paging = new KeysetPaging<T>(this);
+        return paging.seek(paging.keyOf(lastRow), size);
+    }
+
+    @SuppressWarnings("unchecked")
+    <X> SingularAttribute<? super X, ?> getIdAttribute(From<?, X> from)
+    {
+        IdentifiableType<X> entityType;
+        if (from instanceof Root)
+        {
+            entityType = ((Root<X>) from).getModel();
+        }
+        else
+        {
+            Attribute<?, ?> attribute = ((Join<?, X>) from).getAttribute();
+            entityType = (IdentifiableType<X>) (attribute instanceof PluralAttribute
+                ? ((PluralAttribute<?, ?, ?>) attribute).getElementType()
+                : ((SingularAttribute<?, ?>) attribute).getType());
+        }
+        return entityType.getId(entityType.getIdType().getJavaType());
+    }
+
+    boolean isRootAttribute(Expression<?> key)
+    {
+        return key instanceof Path && ((Path<?>) key).getParentPath() == this.fromEntity
+            && ((Path<?>) key).getModel() instanceof Attribute;
+    }
+
+    Object readSortKey(T row, Expression<?> key)
+    {
+        if (!isRootAttribute(key))
+        {
+            throw new IllegalArgumentException("Sort key is not an attribute of "
+                + this.fromEntity.getJavaType().getSimpleName() + "; use pageAfter(Page) instead");
+        }
+
+        return readMember(row, ((Attribute<?, ?>) ((Path<?>) key).getModel()).getJavaMember());
+    }
+
+    static Object readMember(Object row, Member member)
+    {
+        try
+        {
+            if (member instanceof Field)
+            {
+                ((Field) member).setAccessible(true);
+                return ((Field) member).get(row);
+            }
+            return ((Method) member).invoke(row);
+        }
+        catch (Exception e)
+        {
+            throw new IllegalArgumentException("Cannot read " + member.getName() + " of " + row, e);
+        }
+    }
+
+    public <J> AndInfo<T, J> andFrom(Class<J> joinClass)
+    {
+        return new AndInfo<T, J>(this, joinClass);
+    }
+
+    public T singleResult()
+    {
+        List<T> resultList = getResultList(0, 1);
+        if (resultList.size() > 0)
+        {
+            return resultList.get(0);
+        }
+
+        return null;
+    }
+
+    public Future<List<T>> resultListAsync()
+    {
+        return submit(new Callable<List<T>>()
+        {
+            public List<T> call()
+            {
+                return resultList();
+            }
+        });
+    }
+
+    public Future<T> singleResultAsync()
+    {
+        return submit(new Callable<T>()
+        {
+            public T call()
+            {
+                return singleResult();
+            }
+        });
+    }
+
+    public Future<Long> countAsync()
+    {
+        return submit(new Callable<Long>()
+        {
+            public Long call()
+            {
+                return count();
+            }
+        });
+    }
+
+    public RootInfo<T> executor(Executor executor)
+    {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Runs the terminal on the executor with its own EntityManager from the factory, closed when the terminal
+     * completes, so the returned entities are detached. Asynchronous terminals of the same query run one at a time.
+     */
+    private <R> Future<R> submit(Callable<R> terminal)
+    {
+        return AsyncExecution.submit(this, getEntityManagerFactory(),
+            this.executor != null ? this.executor : Query.getDefaultExecutor(), terminal);
+    }
+
+    public List<T> limit(int maxResults)
+    {
+        return getResultList(0, maxResults);
+    }
+
+    public List<T> page(int offset, int size)
+    {
+        return getResultList(offset, size);
+    }
+
+    public Projection<T> select(SingularAttribute<?, ?>... attributes)
+    {
+        Selection<?>[] selections = new Selection<?>[attributes.length];
+        for (int i = 0; i < attributes.length; i++)
+        {
+            selections[i] = pathOf(attributes[i]);
+        }
+        return new Projection<T>(this, selections);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    Path<?> pathOf(SingularAttribute<?, ?> attribute)
+    {
+        Class<?> declaringClass = attribute.getDeclaringType().getJavaType();
+        if (declaringClass.isAssignableFrom(this.fromEntity.getJavaType()))
+        {
+            return this.fromEntity.get((SingularAttribute) attribute);
+        }
+        for (FromInfo<T, ?> join : joins)
+        {
+            if (declaringClass.isAssignableFrom(join.getFrom().getJavaType()))
+            {
+                return join.getFrom().get((SingularAttribute) attribute);
+            }
+        }
+        throw new IllegalArgumentException(attribute.getName() + " is not an attribute of any entity in the query");
+    }
+
+    <R> List<R> project(Selection<R> selection)
+    {
+        return project("projection", selection, true);
+    }
+
+    private <R> List<R> project(final String terminal, final Selection<R> selection, final boolean ordered)
+    {
+        if (isUnsatisfiable(terminal))
+        {
+            return new ArrayList<R>();
+        }
+        if (isCached())
+        {
+            return new ArrayList<R>(this.cacheLookup.get(selection, new Callable<List<R>>()
+            {
+                public List<R> call()
+                {
+                    return loadProjection(terminal, selection, ordered);
+                }
+            }, terminal, selection.getJavaType()));
+        }
+        return loadProjection(terminal, selection, ordered);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> List<R> loadProjection(String terminal, Selection<R> selection, boolean ordered)
+    {
+        long started = System.nanoTime();
+        buildCriteria(getAllPredicates(), ordered ? getAllOrderBys() : Collections.<Order> emptyList()).select(
+            selection);
+        return (List<R>) execute(terminal, createQuery(criteria), started);
+    }
+
+    /**
+     * Grouping only applies to this terminal, so it is removed from the shared criteria afterwards. Without grouping
+     * there is a single row, which is not ordered.
+     */
+    <R> List<R> aggregate(Selection<R> selection, List<Path<?>> grouping, List<Predicate> having)
+    {
+        if (!grouping.isEmpty())
+        {
+            this.criteria.groupBy(new ArrayList<Expression<?>>(grouping));
+        }
+        if (!having.isEmpty())
+        {
+            this.criteria.having(having.toArray(new Predicate[having.size()]));
+        }
+        try
+        {
+            return project("aggregate", selection, !grouping.isEmpty());
+        }
+        finally
+        {
+            this.criteria.groupBy((List<Expression<?>>) null);
+            this.criteria.having((Expression<Boolean>) null);
+        }
+    }
+
+    /**
+     * Groups the rows matching the criteria by the given attributes of the root or of its joins; the aggregates to
+     * compute for each group are added to the returned aggregation.
+     */
+    public Aggregation<T> groupBy(SingularAttribute<?, ?>... attributes)
+    {
+        List<Path<?>> grouping = new ArrayList<Path<?>>(attributes.length);
+        for (SingularAttribute<?, ?> attribute : attributes)
+        {
+            grouping.add(pathOf(attribute));
+        }
+        return new Aggregation<T>(this, grouping);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <N extends Number> N sum(SingularAttribute<?, N> attribute)
+    {
+        return (N) aggregate(groupBy().sum(attribute));
+    }
+
+    public <N extends Number> Double avg(SingularAttribute<?, N> attribute)
+    {
+        Number avg = (Number) aggregate(groupBy().avg(attribute));
+        return avg == null ? null : Double.valueOf(avg.doubleValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V extends Comparable<? super V>> V min(SingularAttribute<?, V> attribute)
+    {
+        return (V) aggregate(groupBy().min(attribute));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V extends Comparable<? super V>> V max(SingularAttribute<?, V> attribute)
+    {
+        return (V) aggregate(groupBy().max(attribute));
+    }
+
+    /**
+     * Single aggregate over all the rows, null when no row matches.
+     */
+    private Object aggregate(Aggregation<T> aggregation)
+    {
+        List<Object[]> rows = aggregation.resultList();
+        return rows.isEmpty() ? null : rows.get(0)[0];
+    }
+
+    public long count()
+    {
+        if (isUnsatisfiable("count"))
+        {
+            return 0;
+        }
+        if (isCached())
+        {
+            return this.cacheLookup.get(this.fromEntity, new Callable<Long>()
+            {
+                public Long call()
+                {
+                    return loadCount();
+                }
+            }, "count");
+        }
+        return loadCount();
+    }
+
+    private long loadCount()
+    {
+        CriteriaBuilder builder = getCriteriaBuilder();
+        if (this.inChunks != null)
+        {
+            return chunked().count();
+        }
+        long started = System.nanoTime();
+        buildCriteria(getAllPredicates(), Collections.<Order> emptyList()).distinct(false).select(
+            this.distinct ? builder.countDistinct(this.fromEntity) : builder.count(this.fromEntity));
+        return ((Number) execute("count", createQuery(criteria), started).get(0)).longValue();
+    }
+
+    public boolean exists()
+    {
+        if (isUnsatisfiable("exists"))
+        {
+            return false;
+        }
+        if (isCached())
+        {
+            return this.cacheLookup.get(this.fromEntity, new Callable<Boolean>()
+            {
+                public Boolean call()
+                {
+                    return loadExists();
+                }
+            }, "exists");
+        }
+        return loadExists();
+    }
+
+    private boolean loadExists()
+    {
+        if (this.inChunks != null)
+        {
+            return chunked().exists();
+        }
+        long started = System.nanoTime();
+        buildCriteria(getAllPredicates(), Collections.<Order> emptyList()).distinct(false).select(
+            this.fromEntity.get(getIdAttribute(this.fromEntity)));
+        return !execute("exists", createQuery(criteria).setMaxResults(1), started).isEmpty();
+    }
+
+    private boolean isCached()
+    {
+        return this.cacheLookup != null && this.hints.getLockMode() == null;
+    }
+
+    <R> List<R> execute(String terminal, TypedQuery<R> query, long started)
+    {
+        return execute(terminal, query, started, true);
+    }
+
+    /**
+     * Runs the query and tells the listeners how long it took to build since started and then to execute.
+     */
+    <R> List<R> execute(String terminal, TypedQuery<R> query, long started, boolean countRows)
+    {
+        if (!QueryMetrics.hasListeners())
+        {
+            return query.getResultList();
+        }
+
+        long executing = System.nanoTime();
+        List<R> results;
+        try
+        {
+            results = query.getResultList();
+        }
+        catch (RuntimeException e)
+        {
+            publish(QueryEvent.Type.FAILED, terminal, executing - started, System.nanoTime() - executing, 0, e,
+                query);
+            throw e;
+        }
+        publish(QueryEvent.Type.EXECUTED, terminal, executing - started, System.nanoTime() - executing,
+            countRows ? results.size() : -1, null, query);
+        return results;
+    }
+
+    void publish(QueryEvent.Type type, String terminal, long buildNanos, long executionNanos, long rows,
+        RuntimeException exception, TypedQuery<?> query)
+    {
+        if (QueryMetrics.hasListeners())
+        {
+            QueryMetrics.publish(new QueryEvent(type, terminal, QueryFingerprint.of(this), buildNanos, executionNanos,
+                rows, exception, query));
+        }
+    }
+
+    public <V> RootFieldCriteria<T, T> with(SingularAttribute<T, ? extends V> field)
+    {
+        return new RootFieldCriteria<T, T>(this, field);
+    }
+
+    public <R, V> RootFieldCriteria<T, T> with(SingularAttribute<T, R> field,
+        SingularAttribute<R, ? extends V> relatedField)
+    {
+        return new RootFieldCriteria<T, T>(this, field, relatedField);
+    }
+
+    public <V> RootFieldCriteria<T, T> and(SingularAttribute<T, ? extends V> field)
+    {
+        return with(field);
+    }
+
+    public <R, V> RootFieldCriteria<T, T> and(SingularAttribute<T, R> field,
+        SingularAttribute<R, ? extends V> relatedField)
+    {
+        return new RootFieldCriteria<T, T>(this, field, relatedField);
+    }
+
+    public <V> RootFieldCriteria<T, T> or(SingularAttribute<T, ? extends V> field)
+    {
+        return new RootFieldCriteria<T, T>(this, field, true);
+    }
+
+    public <R, V> RootFieldCriteria<T, T> or(SingularAttribute<T, R> field,
+        SingularAttribute<R, ? extends V> relatedField)
+    {
+        return new RootFieldCriteria<T, T>(this, field, relatedField, true);
+    }
+
+    /**
+     * Semi-join: roots for which the correlated subquery finds a row, without the duplicates of a join.
+     */
+    public <S> SubqueryInfo.CorrelationInfo<T, T, S, RootInfo<T>> whereExists(Class<S> entityClass)
+    {
+        return new SubqueryInfo.CorrelationInfo<T, T, S, RootInfo<T>>(this, this, entityClass, true);
+    }
+
+    /**
+     * Anti-join: roots for which the correlated subquery finds no row.
+     */
+    public <S> SubqueryInfo.CorrelationInfo<T, T, S, RootInfo<T>> whereNotExists(Class<S> entityClass)
+    {
+        return new SubqueryInfo.CorrelationInfo<T, T, S, RootInfo<T>>(this, this, entityClass, false);
+    }
+
+    <S, P> SubqueryInfo<T, S, P> subquery(Class<S> entityClass, SingularAttribute<S, ?> selected, P parent)
+    {
+        return new SubqueryInfo<T, S, P>(this, entityClass, selected, parent);
+    }
+
+    Subquery<Object> createSubquery()
+    {
+        if (this.rootInfo != null)
+        {
+            return this.rootInfo.createSubquery();
+        }
+        return this.criteria.subquery(Object.class);
+    }
+
+    /**
+     * Roots of subqueries are not roots of the criteria, but writes to their entities change the results all the same.
+     */
+    void addSubqueryRoot(Root<?> root)
+    {
+        if (this.rootInfo != null)
+        {
+            this.rootInfo.addSubqueryRoot(root);
+            return;
+        }
+        this.subqueryRoots.add(root);
+    }
+
+    /**
+     * Group of predicates of which at least one must match; the group is AND-ed with the other criteria.
+     */
+    public PredicateGroup<T, T, RootInfo<T>> anyOf()
+    {
+        return new PredicateGroup<T, T, RootInfo<T>>(this, this, this, true);
+    }
+
+    /**
+     * Group of predicates which must all match, mostly useful nested in {@link #anyOf()}.
+     */
+    public PredicateGroup<T, T, RootInfo<T>> allOf()
+    {
+        return new PredicateGroup<T, T, RootInfo<T>>(this, this, this, false);
+    }
+
+    public <V> RootInfo<T> descendingBy(SingularAttribute<T, ? extends V> field)
+    {
+        orderBys.add(getCriteriaBuilder().desc(fromEntity.get(field)));
+        return this;
+    }
+
+    public <V> RootInfo<T> ascendingBy(SingularAttribute<T, ? extends V> field)
+    {
+        orderBys.add(getCriteriaBuilder().asc(fromEntity.get(field)));
+        return this;
+    }
+
+    public void addOrderBy(Order order)
+    {
+        if (order != null)
+        {
+            orderBys.add(order);
+        }
+
+    }
+
+    private ChunkedExecution<T> chunked()
+    {
+        return new ChunkedExecution<T>(this, this.inChunks, this.chunkExecutor);
+    }
+
+    CriteriaQuery<Object> getCriteria()
+    {
+        return this.criteria;
+    }
+
+    List<FromInfo<T, ?>> getJoins()
+    {
+        return this.joins;
+    }
+
+    List<String> getShapes()
+    {
+        return this.shapes;
+    }
+
+    List<ParameterBinding> getBindings()
+    {
+        return this.bindings;
+    }
+
+    List<Root<?>> getSubqueryRoots()
+    {
+        return this.subqueryRoots;
+    }
+
+    QueryHints getHints()
+    {
+        return this.hints;
+    }
+
+    int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    int getInChunkSize()
+    {
+        return this.inChunkSize;
+    }
+
+    boolean isDistinct()
+    {
+        return this.distinct;
+    }
+
+    boolean fetchesCollection()
+    {
+        return this.fetchesCollection;
     }
 
     @Override
@@ -0,0 +1,140 @@
+package com.quintech.criteria;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * QueryListener logging, at WARN, the queries whose build and execution took at least the threshold, with their
+ * JPQL, or their fingerprint when a redactor is set, parameter values, row count and the frame that called the
+ * library. At most maxEntriesPerSecond entries are logged each second; the next logged entry tells how many were
+ * suppressed in between.
+ */
+public final class SlowQueryLog implements QueryListener
+{
+    /**
+     * Replaces a parameter value before it is logged, e.g. with a mask or a hash.
+     */
+    public interface Redactor
+    {
+        Object redact(String parameter, Object value);
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long thresholdNanos;
+    private int maxEntriesPerSecond = 10;
+    private Redactor redactor;
+
+    private long windowStart;
+    private int entriesInWindow;
+    private long suppressed;
+
+    public SlowQueryLog(long threshold, TimeUnit unit)
+    {
+        super();
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.windowStart = System.nanoTime() - SECOND;
+    }
+
+    public SlowQueryLog maxEntriesPerSecond(int maxEntriesPerSecond)
+    {
+        this.maxEntriesPerSecond = maxEntriesPerSecond;
+        return this;
+    }
+
+    /**
+     * With a redactor, queries are logged by fingerprint instead of JPQL, followed by their redacted parameter values.
+     * Values may be part of the JPQL even in parameterized queries, such as the ids of findAll, the id bounds of
+     * parallelScan partitions and chunked IN lists.
+     */
+    public SlowQueryLog redactor(Redactor redactor)
+    {
+        this.redactor = redactor;
+        return this;
+    }
+
+    public void handle(QueryEvent event)
+    {
+        if (event.getType() != QueryEvent.Type.EXECUTED && event.getType() != QueryEvent.Type.FAILED)
+        {
+            return;
+        }
+        long elapsed = event.getBuildNanos() + event.getExecutionNanos();
+        if (elapsed < this.thresholdNanos || !LOGGER.isWarnEnabled())
+        {
+            return;
+        }
+
+        long suppressedBefore = acquire();
+        if (suppressedBefore < 0)
+        {
+            return;
+        }
+
+        Map<String, Object> parameters = event.getParameters();
+        String query = event.getQueryString();
+        if (this.redactor != null)
+        {
+            Map<String, Object> redacted = new LinkedHashMap<String, Object>();
+            for (Map.Entry<String, Object> parameter : parameters.entrySet())
+            {
+                redacted.put(parameter.getKey(), this.redactor.redact(parameter.getKey(), parameter.getValue()));
+            }
+            parameters = redacted;
+            query = null;
+        }
+
+        StringBuilder entry = new StringBuilder("Slow ").append(event.getTerminal()).append(" query took ")
+            .append(TimeUnit.NANOSECONDS.toMillis(elapsed)).append(" ms");
+        if (event.getType() == QueryEvent.Type.FAILED)
+        {
+            entry.append(" and failed with ").append(event.getException());
+        }
+        else if (event.getRows() >= 0)
+        {
+            entry.append(" for ").append(event.getRows()).append(" rows");
+        }
+        StackTraceElement callSite = event.getCallSite();
+        if (callSite != null)
+        {
+            entry.append(" at ").append(callSite);
+        }
+        entry.append(": ").append(query != null ? query : event.getFingerprint());
+        if (!parameters.isEmpty())
+        {
+            entry.append(" with ").append(parameters);
+        }
+        if (suppressedBefore > 0)
+        {
+            entry.append(" (").append(suppressedBefore).append(" slow queries not logged before this one)");
+        }
+        LOGGER.warn(entry.toString());
+    }
+
+    /**
+     * Number of slow queries suppressed since the last logged one, or -1 when this one must be suppressed too.
+     */
+    private synchronized long acquire()
+    {
+        long now = System.nanoTime();
+        if (now - this.windowStart >= SECOND)
+        {
+            this.windowStart = now;
+            this.entriesInWindow = 0;
+        }
+        if (this.entriesInWindow >= this.maxEntriesPerSecond)
+        {
+            this.suppressed++;
+            return -1;
+        }
+        this.entriesInWindow++;
+        long suppressedBefore = this.suppressed;
+        this.suppressed = 0;
+        return suppressedBefore;
+    }
+}
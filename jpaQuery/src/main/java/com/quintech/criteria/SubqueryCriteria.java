@@ -0,0 +1,14 @@
+package com.quintech.criteria;
+
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Predicates on an attribute of the entity of a subquery, which return the subquery rather than the query.
+ */
+public final class SubqueryCriteria<T, S, P> extends FieldCriteria<T, S, SubqueryInfo<T, S, P>>
+{
+    SubqueryCriteria(SubqueryInfo<T, S, P> subquery, SingularAttribute<S, ?> field, boolean alternative)
+    {
+        super(subquery, subquery, field, null, alternative);
+    }
+}
@@ -0,0 +1,155 @@
+package com.quintech.criteria;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Entity of a subquery used by EXISTS, NOT EXISTS or IN, which filters the root without multiplying its rows. The
+ * predicates added to it form the WHERE clause of the subquery; they are not checked for contradictions and their IN
+ * lists are not split into chunks. Rows of a subquery are neither ordered nor fetched, so it has no terminals;
+ * {@link #end()} returns P, the entity or the criteria the subquery was opened on, where the chain goes on.
+ */
+public final class SubqueryInfo<T, S, P> extends AbstractNestedInfo<T, S>
+{
+    private final Subquery<Object> subquery;
+    private final Root<S> from;
+    private final P parent;
+    private final List<Predicate> predicates = new ArrayList<Predicate>();
+    private int correlations;
+
+    public static class CorrelationInfo<T, U, S, P>
+    {
+        private final AbstractFromInfo<T, U> outer;
+        private final P parent;
+        private final Class<S> entityClass;
+        private final boolean exists;
+
+        protected CorrelationInfo(AbstractFromInfo<T, U> outer, P parent, Class<S> entityClass, boolean exists)
+        {
+            super();
+            this.outer = outer;
+            this.parent = parent;
+            this.entityClass = entityClass;
+            this.exists = exists;
+        }
+
+        /**
+         * Correlates the subquery with the entity that {@code whereExists} or {@code whereNotExists} was called on and
+         * adds its EXISTS or NOT EXISTS to the criteria of that entity.
+         */
+        public SubqueryInfo<T, S, P> joinOn(SingularAttribute<U, ?> sourceField, SingularAttribute<S, ?> joinField)
+        {
+            SubqueryInfo<T, S, P> subquery = this.outer.subquery(this.entityClass, null, this.parent);
+            subquery.correlate(this.outer.getFrom(), sourceField, joinField);
+            Predicate exists = this.outer.getCriteriaBuilder().exists(subquery.getSubquery());
+            this.outer.addShape((this.exists ? "EXISTS " : "NOT EXISTS ") + this.entityClass.getSimpleName());
+            this.outer.addPredicate(this.exists ? exists : this.outer.getCriteriaBuilder().not(exists));
+            return subquery;
+        }
+    }
+
+    /**
+     * Subquery selecting the given attribute of the entity, or the entity itself when the attribute is null.
+     */
+    @SuppressWarnings("unchecked")
+    SubqueryInfo(RootInfo<T> mainFrom, Class<S> entityClass, SingularAttribute<S, ?> selected, P parent)
+    {
+        super(mainFrom);
+        this.parent = parent;
+        this.subquery = mainFrom.createSubquery();
+        this.from = this.subquery.from(entityClass);
+        mainFrom.addSubqueryRoot(this.from);
+        this.subquery.select((Expression<Object>) (Expression<?>) (selected == null ? this.from
+            : this.from.get(selected)));
+    }
+
+    private <U> void correlate(From<?, U> outer, SingularAttribute<U, ?> sourceField,
+        SingularAttribute<S, ?> joinField)
+    {
+        addPredicate(getCriteriaBuilder().equal(outer.get(sourceField), this.from.get(joinField)));
+        this.correlations = this.predicates.size();
+    }
+
+    public Subquery<?> getSubquery()
+    {
+        return this.subquery;
+    }
+
+    public Root<S> getFrom()
+    {
+        return this.from;
+    }
+
+    public <V> SubqueryCriteria<T, S, P> with(SingularAttribute<S, ? extends V> field)
+    {
+        return new SubqueryCriteria<T, S, P>(this, field, false);
+    }
+
+    public <V> SubqueryCriteria<T, S, P> and(SingularAttribute<S, ? extends V> field)
+    {
+        return with(field);
+    }
+
+    public <V> SubqueryCriteria<T, S, P> or(SingularAttribute<S, ? extends V> field)
+    {
+        return new SubqueryCriteria<T, S, P>(this, field, true);
+    }
+
+    /**
+     * The subquery is already part of the criteria, so its WHERE clause is replaced as predicates are added.
+     */
+    public void addPredicate(Predicate predicate)
+    {
+        if (predicate != null)
+        {
+            this.predicates.add(predicate);
+            this.subquery.where(this.predicates.toArray(new Predicate[this.predicates.size()]));
+        }
+    }
+
+    /**
+     * The correlation is not a criterion of its own, so it is never OR-ed.
+     */
+    void addAlternative(Predicate predicate)
+    {
+        if (this.predicates.size() <= this.correlations)
+        {
+            throw new IllegalStateException("or() must follow a predicate on the same entity");
+        }
+        RootInfo.orWithLast(getCriteriaBuilder(), this.predicates, predicate);
+        this.subquery.where(this.predicates.toArray(new Predicate[this.predicates.size()]));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void addIn(Expression<?> expression, Collection<?> values)
+    {
+        addPredicate(PredicateUtils.in(getCriteriaBuilder(), expression,
+            valuesOf((Class<Object>) expression.getJavaType(), values)));
+    }
+
+    @Override
+    void addRange(Path<?> path, Object lowest, Object highest)
+    {
+    }
+
+    public List<Predicate> getPredicates()
+    {
+        return Collections.unmodifiableList(this.predicates);
+    }
+
+    public P end()
+    {
+        return this.parent;
+    }
+}
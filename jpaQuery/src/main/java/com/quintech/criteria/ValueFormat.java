@@ -0,0 +1,66 @@
+package com.quintech.criteria;
+
+import java.util.Locale;
+
+public enum ValueFormat
+{
+    AS_IS
+    {
+        @Override
+        public Object format(Object value)
+        {
+            return value;
+        }
+    },
+    UPPER_CASE
+    {
+        @Override
+        public Object format(Object value)
+        {
+            return upperCase((String) value);
+        }
+    },
+    STARTS_WITH
+    {
+        @Override
+        public Object format(Object value)
+        {
+            return PredicateUtils.startsWithPattern((String) value);
+        }
+    },
+    STARTS_WITH_UPPER_CASE
+    {
+        @Override
+        public Object format(Object value)
+        {
+            return PredicateUtils.startsWithPattern(upperCase((String) value));
+        }
+    },
+    CONTAINS
+    {
+        @Override
+        public Object format(Object value)
+        {
+            return PredicateUtils.containsPattern((String) value);
+        }
+    },
+    CONTAINS_UPPER_CASE
+    {
+        @Override
+        public Object format(Object value)
+        {
+            return PredicateUtils.containsPattern(upperCase((String) value));
+        }
+    };
+
+    public abstract Object format(Object value);
+
+    /**
+     * Upper cased with the rules of no language, like the UPPER function of the database, rather than those of the
+     * default locale, which turn a Turkish i into a dotted capital I.
+     */
+    private static String upperCase(String value)
+    {
+        return value == null ? null : value.toUpperCase(Locale.ROOT);
+    }
+}
@@ -1,23 +1,47 @@
 package com.quintech.criteria;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.FlushModeType;
+import javax.persistence.LockModeType;
 import javax.persistence.Persistence;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
 
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -722,4 +746,2372 @@ public class CriteriaUtilsBehavior
             em.close();
         }
     }
+
+    @Test
+    public void parameterizedSelectFromWithFieldEqualToShouldMatchRecords()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        final List<String> queryStrings = new ArrayList<String>();
+        QueryListener listener = new QueryListener()
+        {
+            public void handle(QueryEvent event)
+            {
+                queryStrings.add(event.getQueryString());
+            }
+        };
+        QueryMetrics.addListener(listener);
+        try
+        {
+            // Given
+            int expectedRecords = 2;
+
+            // When
+            List<Person> females = Query.using(em).parameterized().selectFrom(Person.class)
+                .with(Person_.gender).equalTo("F").resultList();
+            List<Person> males = Query.using(em).parameterized().selectFrom(Person.class)
+                .with(Person_.gender).equalTo("M").resultList();
+
+            // Then
+            assertThat(females.size(), is(equalTo(expectedRecords)));
+            for (Person person : females)
+            {
+                assertThat(person.getGender(), is(equalTo("F")));
+            }
+            assertThat(males.size(), is(equalTo(4)));
+            assertThat(queryStrings.size(), is(equalTo(2)));
+            assertThat(queryStrings.get(0), containsString(":p0"));
+            assertThat(queryStrings.get(1), is(equalTo(queryStrings.get(0))));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(listener);
+            em.close();
+        }
+    }
+
+    @Test
+    public void parameterizedSelectFromWithStringAndDateCriteriaShouldMatchRecords()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            Calendar cal = Calendar.getInstance();
+            cal.set(1985, 11, 8, 17, 0, 0);
+            cal.set(Calendar.MILLISECOND, 0);
+            Date cutoffDate = cal.getTime();
+            int expectedRecords = 2;
+
+            // When
+            List<Person> peeps = Query.using(em).parameterized().selectFrom(Person.class)
+                .with(Person_.lastName).startsWithIgnoreCase("b")
+                .and(Person_.firstName).contains("a")
+                .and(Person_.birthDate).notBefore(cutoffDate).resultList();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(expectedRecords)));
+            for (Person person : peeps)
+            {
+                assertThat(person.getLastName().indexOf("B"), is(equalTo(0)));
+                assertThat(person.getBirthDate(), is(greaterThanOrEqualTo(cutoffDate)));
+            }
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void parameterizedSelectFromWithFieldInShouldMatchRecords()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        final List<String> queryStrings = new ArrayList<String>();
+        QueryListener listener = new QueryListener()
+        {
+            public void handle(QueryEvent event)
+            {
+                queryStrings.add(event.getQueryString());
+            }
+        };
+        QueryMetrics.addListener(listener);
+        try
+        {
+            // Given
+            List<Integer> ids = Arrays.asList(1, 3, 5);
+            int expectedRecords = 3;
+
+            // When
+            List<Person> peeps = Query.using(em).parameterized().selectFrom(Person.class)
+                .with(Person_.id).in(ids).resultList();
+            Query.using(em).parameterized().selectFrom(Person.class).with(Person_.id).in(Arrays.asList(2, 4, 6))
+                .resultList();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(expectedRecords)));
+            for (Person person : peeps)
+            {
+                assertThat(ids, hasItem(person.getId()));
+            }
+            assertThat(queryStrings.size(), is(equalTo(2)));
+            assertThat(queryStrings.get(0), containsString(":p0"));
+            assertThat(queryStrings.get(1), is(equalTo(queryStrings.get(0))));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(listener);
+            em.close();
+        }
+    }
+
+    @Test
+    public void parameterizedSelectFromSingleJoinShouldMatchRecords()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            int expectedRecords = 1;
+
+            // When
+            List<Person> peeps = Query.using(em).parameterized().selectFrom(Person.class)
+                .with(Person_.lastName).equalTo("Smith")
+                .andFrom(Address.class).joinOn(Person_.id, Address_.personId)
+                .with(Address_.city).equalTo("Westminster").resultList();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(expectedRecords)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void templateBoundWithDifferentValuesShouldMatchRecords()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            QueryTemplate<Person> byGender = Query.template(emFactory, Person.class)
+                .with(Person_.gender).equalTo("F")
+                .ascendingBy(Person_.lastName).compile();
+
+            // When
+            List<Person> females = byGender.resultList(em);
+            List<Person> males = byGender.resultList(em, "M");
+
+            // Then
+            assertThat(females.size(), is(equalTo(2)));
+            assertThat(females.get(0).getLastName(), is(equalTo("Bartel")));
+            assertThat(males.size(), is(equalTo(4)));
+            for (Person person : males)
+            {
+                assertThat(person.getGender(), is(equalTo("M")));
+            }
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void templateWithJoinShouldMatchRecords()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            QueryTemplate<Person> byNameAndCity = Query.template(emFactory, Person.class)
+                .with(Person_.lastName).startsWith("")
+                .andFrom(Address.class).joinOn(Person_.id, Address_.personId)
+                .with(Address_.city).equalTo("").compile();
+
+            // When
+            List<Person> smiths = byNameAndCity.resultList(em, "Sm", "Westminster");
+            Person nobody = byNameAndCity.singleResult(em, "Bar", "Westminster");
+
+            // Then
+            assertThat(smiths.size(), is(equalTo(1)));
+            assertThat(smiths.get(0).getLastName(), is(equalTo("Smith")));
+            assertThat(nobody, is(nullValue()));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void templateWithFieldInShouldBindSmallerCollections()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            QueryTemplate<Person> byIds = Query.template(emFactory, Person.class)
+                .with(Person_.id).in(Arrays.asList(1, 2, 3, 4)).compile();
+
+            // When
+            List<Person> peeps = byIds.resultList(em, Arrays.asList(5, 6));
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(2)));
+            for (Person person : peeps)
+            {
+                assertThat(Arrays.asList(5, 6), hasItem(person.getId()));
+            }
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void compiledQueryShouldNotBeCompiledAgain()
+    {
+        RootInfo<Person> query = Query.template(emFactory, Person.class);
+        query.with(Person_.gender).equalTo("F").compile();
+        query.compile();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void templateShouldNotCompileCriteriaWithoutAValueToBind()
+    {
+        // Given
+        RootInfo<Person> query = Query.template(emFactory, Person.class);
+        query.with(Person_.birthDate).equalTo(null).and(Person_.gender).equalTo("F");
+
+        // When
+        query.compile();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void templateShouldNotCompileAFetchedCollection()
+    {
+        // Given
+        RootInfo<Person> query = Query.template(emFactory, Person.class).fetch(Person_.phones);
+
+        // When
+        query.compile();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void keysetPagingShouldNotPageAFetchedCollection()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class).fetch(Person_.phones)
+                .ascendingBy(Person_.lastName);
+
+            // When
+            query.firstPage(2);
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void keysetPagingShouldPrefetchTheCollectionsOfAPage()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class).prefetch(Person_.phones)
+                .descendingBy(Person_.lastName);
+
+            // When
+            Page<Person> page = query.firstPage(2);
+
+            // Then
+            assertThat(page.getContent().size(), is(equalTo(2)));
+            assertThat(page.hasNext(), is(true));
+            assertThat(page.getContent().get(0).getLastName(), is(equalTo("Smith")));
+            assertThat(emFactory.getPersistenceUnitUtil().isLoaded(page.getContent().get(0), "phones"), is(true));
+            assertThat(page.getContent().get(0).getPhones().size(), is(equalTo(3)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void forEachShouldHandleEveryRecordAndDetachThem()
+    {
+        final EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            final List<Person> handled = new ArrayList<Person>();
+            int expectedRecords = 6;
+
+            // When
+            long rows = Query.using(em).selectFrom(Person.class).batchSize(2).ascendingBy(Person_.id)
+                .forEach(new ResultHandler<Person>()
+                {
+                    public void handle(Person person)
+                    {
+                        assertThat(em.contains(person), is(true));
+                        handled.add(person);
+                    }
+                });
+
+            // Then
+            assertThat(rows, is(equalTo((long) expectedRecords)));
+            assertThat(handled.size(), is(equalTo(expectedRecords)));
+            for (int i = 0; i < handled.size(); i++)
+            {
+                assertThat(handled.get(i).getId(), is(equalTo(i + 1)));
+                assertThat(em.contains(handled.get(i)), is(false));
+            }
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void resultIteratorShouldDetachProcessedRecordsEveryBatch()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            ResultIterator<Person> results = Query.using(em).selectFrom(Person.class)
+                .with(Person_.gender).equalTo("M").batchSize(2).resultIterator();
+
+            // When
+            Person first = results.next();
+            Person second = results.next();
+            Person third = results.next();
+
+            // Then
+            assertThat(em.contains(first), is(false));
+            assertThat(em.contains(second), is(false));
+            assertThat(em.contains(third), is(true));
+            results.close();
+            assertThat(em.contains(third), is(false));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void pagesShouldCoverAllRecordsInSortOrder()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> byGender = Query.using(em).selectFrom(Person.class).ascendingBy(Person_.gender);
+
+            // When
+            Page<Person> first = byGender.firstPage(2);
+            Page<Person> second = byGender.pageAfter(first);
+            Page<Person> third = byGender.pageAfter(second);
+
+            // Then
+            assertThat(first.getContent().size(), is(equalTo(2)));
+            assertThat(first.getContent().get(0).getId(), is(equalTo(3)));
+            assertThat(first.getContent().get(1).getId(), is(equalTo(4)));
+            assertThat(first.hasNext(), is(true));
+            assertThat(second.getContent().get(0).getId(), is(equalTo(1)));
+            assertThat(second.getContent().get(1).getId(), is(equalTo(2)));
+            assertThat(third.getContent().get(0).getId(), is(equalTo(5)));
+            assertThat(third.getContent().get(1).getId(), is(equalTo(6)));
+            assertThat(third.hasNext(), is(false));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void pageAfterLastRowShouldSeekPastThatRow()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            Person lastRow = Query.using(em).selectFrom(Person.class).with(Person_.lastName).equalTo("McKinley")
+                .singleResult();
+
+            // When
+            Page<Person> page = Query.using(em).selectFrom(Person.class).descendingBy(Person_.lastName)
+                .pageAfter(lastRow, 10);
+
+            // Then
+            assertThat(page.getContent().size(), is(equalTo(3)));
+            assertThat(page.getContent().get(0).getLastName(), is(equalTo("Buers")));
+            assertThat(page.getContent().get(2).getLastName(), is(equalTo("Bartel")));
+            assertThat(page.hasNext(), is(false));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void pagesShouldSeekOnJoinedSortKeys()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            JoinInfo<Person, Phone> phoneOwners = Query.using(em).selectFrom(Person.class)
+                .andFrom(Phone.class).joinOn(Person_.id, Phone_.personId).ascendingBy(Phone_.type);
+
+            // When
+            Page<Person> first = phoneOwners.firstPage(2);
+            Page<Person> second = phoneOwners.pageAfter(first);
+
+            // Then
+            assertThat(first.getContent().size(), is(equalTo(2)));
+            assertThat(first.getLastKey()[0], is(equalTo((Object) "Mobile")));
+            assertThat(second.getContent().size(), is(equalTo(1)));
+            assertThat(second.getLastKey()[0], is(equalTo((Object) "Office")));
+            assertThat(second.hasNext(), is(false));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void countShouldMatchNumberOfRecords()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+
+            // When
+            long females = Query.using(em).selectFrom(Person.class).with(Person_.gender).equalTo("F")
+                .ascendingBy(Person_.lastName).count();
+            long phoneRows = Query.using(em).selectFrom(Person.class)
+                .andFrom(Phone.class).joinOn(Person_.id, Phone_.personId).count();
+            long phoneOwners = Query.using(em).selectFrom(Person.class).distinct()
+                .andFrom(Phone.class).joinOn(Person_.id, Phone_.personId).count();
+
+            // Then
+            assertThat(females, is(equalTo(2L)));
+            assertThat(phoneRows, is(equalTo(3L)));
+            assertThat(phoneOwners, is(equalTo(1L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void existsShouldTellWhetherAnyRecordMatches()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+
+            // When
+            boolean smithExists = Query.using(em).selectFrom(Person.class).with(Person_.lastName).equalTo("Smith")
+                .exists();
+            boolean jonesExists = Query.using(em).selectFrom(Person.class).with(Person_.lastName).equalTo("Jones")
+                .exists();
+
+            // Then
+            assertThat(smithExists, is(true));
+            assertThat(jonesExists, is(false));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void limitAndPageShouldReturnTheRequestedSlice()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+
+            // When
+            List<Person> firstTwo = Query.using(em).selectFrom(Person.class).ascendingBy(Person_.id).limit(2);
+            List<Person> secondTwo = Query.using(em).selectFrom(Person.class).ascendingBy(Person_.id).page(2, 2);
+
+            // Then
+            assertThat(firstTwo.size(), is(equalTo(2)));
+            assertThat(firstTwo.get(0).getId(), is(equalTo(1)));
+            assertThat(firstTwo.get(1).getId(), is(equalTo(2)));
+            assertThat(secondTwo.size(), is(equalTo(2)));
+            assertThat(secondTwo.get(0).getId(), is(equalTo(3)));
+            assertThat(secondTwo.get(1).getId(), is(equalTo(4)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    public static class PersonName
+    {
+        private final String lastName;
+        private final Integer id;
+
+        public PersonName(String lastName, Integer id)
+        {
+            this.lastName = lastName;
+            this.id = id;
+        }
+
+        public String getLastName()
+        {
+            return lastName;
+        }
+
+        public Integer getId()
+        {
+            return id;
+        }
+    }
+
+    @Test
+    public void selectAttributesShouldReturnArrays()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+
+            // When
+            List<Object[]> rows = Query.using(em).selectFrom(Person.class).with(Person_.gender).equalTo("F")
+                .ascendingBy(Person_.lastName).select(Person_.lastName, Person_.id).resultList();
+
+            // Then
+            assertThat(rows.size(), is(equalTo(2)));
+            assertThat(rows.get(0)[0], is(equalTo((Object) "Bartel")));
+            assertThat(rows.get(0)[1], is(equalTo((Object) 3)));
+            assertThat(rows.get(1)[0], is(equalTo((Object) "Perrine")));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void selectAttributesAcrossJoinsShouldReturnTuples()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+
+            // When
+            List<Tuple> rows = Query.using(em).selectFrom(Person.class)
+                .andFrom(Address.class).joinOn(Person_.id, Address_.personId)
+                .ascendingBy(Address_.city).select(Person_.lastName, Address_.state, Address_.city).tupleList();
+
+            // Then
+            assertThat(rows.size(), is(equalTo(2)));
+            assertThat(rows.get(0).get(0), is(equalTo((Object) "Smith")));
+            assertThat(rows.get(0).get(1), is(equalTo((Object) "CA")));
+            assertThat(rows.get(0).get(2), is(equalTo((Object) "Huntington Beach")));
+            assertThat(rows.get(1).get(2), is(equalTo((Object) "Westminster")));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void selectAttributesShouldConstructResultClass()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+
+            // When
+            List<PersonName> names = Query.using(em).selectFrom(Person.class).with(Person_.lastName).startsWith("B")
+                .ascendingBy(Person_.lastName).select(Person_.lastName, Person_.id).resultList(PersonName.class);
+
+            // Then
+            assertThat(names.size(), is(equalTo(3)));
+            assertThat(names.get(0).getLastName(), is(equalTo("Bartel")));
+            assertThat(names.get(0).getId(), is(equalTo(3)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void fetchShouldLoadCollectionsWithTheRootRecords()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            int expectedRecords = 6;
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).fetch(Person_.phones)
+                .ascendingBy(Person_.id).resultList();
+            em.clear();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(expectedRecords)));
+            assertThat(peeps.get(0).getPhones().size(), is(equalTo(3)));
+            assertThat(peeps.get(1).getPhones().isEmpty(), is(true));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void fetchShouldNotAffectCount()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            FromInfo<Person, Person> query = Query.using(em).selectFrom(Person.class).fetch(Person_.phones)
+                .with(Person_.lastName).equalTo("Smith");
+
+            // When
+            long count = query.count();
+            Person smith = query.singleResult();
+
+            // Then
+            assertThat(count, is(equalTo(1L)));
+            assertThat(smith.getPhones().size(), is(equalTo(3)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void fetchWithLimitShouldNotTruncateCollections()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).fetch(Person_.phones)
+                .ascendingBy(Person_.id).limit(2);
+            em.clear();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(2)));
+            assertThat(peeps.get(0).getPhones().size(), is(equalTo(3)));
+            assertThat(peeps.get(1).getId(), is(equalTo(2)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void joinShouldFilterOnTheAssociatedEntity()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).join(Person_.phones)
+                .with(Phone_.type).equalTo("Mobile").resultList();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(1)));
+            assertThat(peeps.get(0).getLastName(), is(equalTo("Smith")));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void leftJoinShouldKeepRecordsWithoutAssociations()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            int expectedRecords = 5;
+
+            // When
+            long count = Query.using(em).selectFrom(Person.class).leftJoin(Person_.phones)
+                .with(Phone_.number).equalTo((String) null).count();
+
+            // Then
+            assertThat(count, is(equalTo((long) expectedRecords)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void joinShouldOrderByTheAssociatedEntity()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+
+            // When
+            List<Object[]> rows = Query.using(em).selectFrom(Person.class).join(Person_.phones)
+                .descendingBy(Phone_.type).select(Person_.lastName, Phone_.type).resultList();
+
+            // Then
+            assertThat(rows.size(), is(equalTo(3)));
+            assertThat((String) rows.get(0)[1], is(equalTo("Office")));
+            assertThat((String) rows.get(2)[1], is(equalTo("Home")));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void inShouldSplitLargeListsIntoChunksKeepingTheOrder()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            List<Integer> ids = Arrays.asList(6, 5, 4, 3, 2, 1);
+            List<Person> expected = Query.using(em).selectFrom(Person.class).with(Person_.id).in(ids)
+                .ascendingBy(Person_.firstName).resultList();
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).inChunksOf(4).with(Person_.id).in(ids)
+                .ascendingBy(Person_.firstName).resultList();
+            long count = Query.using(em).selectFrom(Person.class).inChunksOf(4).with(Person_.id).in(ids).count();
+
+            // Then
+            assertThat(peeps, is(equalTo(expected)));
+            assertThat(count, is(equalTo(6L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void inShouldRunChunksInParallel() throws Exception
+    {
+        EntityManager em = emFactory.createEntityManager();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            // Given
+            List<Integer> ids = Arrays.asList(1, 2, 3, 4, 5, 6);
+
+            // When
+            List<Person> peeps = Query.using(em).parameterized().selectFrom(Person.class).inChunksOf(2)
+                .inParallel(executor).with(Person_.id).in(ids).descendingBy(Person_.id).limit(4);
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(4)));
+            assertThat(peeps.get(0).getId(), is(equalTo(6)));
+            assertThat(peeps.get(3).getId(), is(equalTo(3)));
+        }
+        finally
+        {
+            executor.shutdown();
+            em.close();
+        }
+    }
+
+    @Test
+    public void chunkedInShouldKeepDistinctAcrossChunks()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            List<Integer> phoneIds = Arrays.asList(1, 2, 3);
+
+            // When
+            FromInfo<Person, Phone> query = Query.using(em).selectFrom(Person.class).distinct().inChunksOf(1)
+                .join(Person_.phones).with(Phone_.id).in(phoneIds);
+            List<Person> peeps = query.resultList();
+            long count = query.count();
+            boolean exists = query.exists();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(1)));
+            assertThat(count, is(equalTo(1L)));
+            assertThat(exists, is(true));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void emptyInShouldNotQueryTheDatabase()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            long shortCircuits = QueryMetrics.getShortCircuitCount();
+            FromInfo<Person, Person> query = Query.using(em).selectFrom(Person.class).with(Person_.id)
+                .in(Collections.<Integer> emptyList());
+
+            // When
+            List<Person> peeps = query.resultList();
+            Person person = query.singleResult();
+            long count = query.count();
+            boolean exists = query.exists();
+
+            // Then
+            assertThat(peeps.isEmpty(), is(true));
+            assertThat(person, is(nullValue()));
+            assertThat(count, is(equalTo(0L)));
+            assertThat(exists, is(false));
+            assertThat(QueryMetrics.getShortCircuitCount() - shortCircuits, is(equalTo(4L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void contradictoryEqualitiesShouldNotQueryTheDatabase()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            long shortCircuits = QueryMetrics.getShortCircuitCount();
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).with(Person_.lastName).equalTo("Smith")
+                .and(Person_.lastName).equalTo("Jones").resultList();
+            List<Person> smiths = Query.using(em).selectFrom(Person.class).with(Person_.lastName).equalTo("Smith")
+                .and(Person_.lastName).equalTo("Smith").resultList();
+
+            // Then
+            assertThat(peeps.isEmpty(), is(true));
+            assertThat(smiths.size(), is(equalTo(1)));
+            assertThat(QueryMetrics.getShortCircuitCount() - shortCircuits, is(equalTo(1L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void emptyRangeShouldNotQueryTheDatabase()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            long shortCircuits = QueryMetrics.getShortCircuitCount();
+
+            // When
+            long empty = Query.using(em).selectFrom(Person.class).with(Person_.id).notLessThan(5)
+                .and(Person_.id).notGreaterThan(3).count();
+            long single = Query.using(em).selectFrom(Person.class).with(Person_.id).notLessThan(3)
+                .and(Person_.id).notGreaterThan(3).count();
+
+            // Then
+            assertThat(empty, is(equalTo(0L)));
+            assertThat(single, is(equalTo(1L)));
+            assertThat(QueryMetrics.getShortCircuitCount() - shortCircuits, is(equalTo(1L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void cacheableShouldServeRepeatedQueriesFromTheCache()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            QueryCache cache = QueryCache.of(emFactory);
+
+            // When
+            List<Address> first = Query.using(em).selectFrom(Address.class).cacheable().with(Address_.state)
+                .equalTo("CA").resultList();
+            List<Address> second = Query.using(em).selectFrom(Address.class).cacheable().with(Address_.state)
+                .equalTo("CA").resultList();
+            long others = Query.using(em).selectFrom(Address.class).cacheable().with(Address_.state)
+                .equalTo("NY").count();
+
+            // Then
+            assertThat(second, is(equalTo(first)));
+            assertThat(others, is(equalTo(0L)));
+            assertThat(cache.getHitCount(), is(equalTo(1L)));
+            assertThat(cache.getMissCount(), is(equalTo(2L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void cacheableShouldExpireEntries()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            QueryCache cache = QueryCache.of(emFactory);
+
+            // When
+            Query.using(em).selectFrom(Person.class).cacheable(1, TimeUnit.NANOSECONDS).count();
+            Query.using(em).selectFrom(Person.class).cacheable(1, TimeUnit.NANOSECONDS).count();
+
+            // Then
+            assertThat(cache.getHitCount(), is(equalTo(0L)));
+            assertThat(cache.getMissCount(), is(equalTo(2L)));
+            assertThat(cache.getEvictionCount(), is(equalTo(1L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void writesShouldEvictCachedQueriesOnJoinedEntities()
+    {
+        QueryCache cache = QueryCache.of(emFactory);
+        EntityManager em = emFactory.createEntityManager();
+        EntityManager writer = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            long before = Query.using(em).selectFrom(Person.class).cacheable().andFrom(Phone.class)
+                .joinOn(Person_.id, Phone_.personId).with(Phone_.type).equalTo("Home").count();
+
+            // When
+            writer.getTransaction().begin();
+            writer.find(Phone.class, 1).setType("Work");
+            writer.getTransaction().commit();
+            long after = Query.using(em).selectFrom(Person.class).cacheable().andFrom(Phone.class)
+                .joinOn(Person_.id, Phone_.personId).with(Phone_.type).equalTo("Home").count();
+
+            // Then
+            assertThat(before, is(equalTo(1L)));
+            assertThat(after, is(equalTo(0L)));
+            assertThat(cache.getEvictionCount(), is(equalTo(1L)));
+        }
+        finally
+        {
+            writer.getTransaction().begin();
+            writer.find(Phone.class, 1).setType("Home");
+            writer.getTransaction().commit();
+            writer.close();
+            em.close();
+        }
+    }
+
+    @Test
+    public void writesOfTheEntityManagerOfACachedQueryShouldEvictIt()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            long before = Query.using(em).selectFrom(Phone.class).cacheable().with(Phone_.type).equalTo("Home")
+                .count();
+
+            // When
+            em.getTransaction().begin();
+            em.find(Phone.class, 1).setType("Work");
+            em.getTransaction().commit();
+            long after = Query.using(em).selectFrom(Phone.class).cacheable().with(Phone_.type).equalTo("Home")
+                .count();
+
+            // Then
+            assertThat(before, is(equalTo(1L)));
+            assertThat(after, is(equalTo(0L)));
+            assertThat(QueryCache.of(emFactory).getEvictionCount(), is(equalTo(1L)));
+        }
+        finally
+        {
+            em.getTransaction().begin();
+            em.find(Phone.class, 1).setType("Home");
+            em.getTransaction().commit();
+            em.close();
+        }
+    }
+
+    @Test
+    public void writesShouldEvictCachedQueriesOnSubqueryEntities()
+    {
+        QueryCache cache = QueryCache.of(emFactory);
+        EntityManager em = emFactory.createEntityManager();
+        EntityManager writer = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class).cacheable();
+            query.whereExists(Phone.class).joinOn(Person_.id, Phone_.personId).with(Phone_.type).equalTo("Work");
+            long before = query.count();
+
+            // When
+            writer.getTransaction().begin();
+            writer.find(Phone.class, 1).setType("Work");
+            writer.getTransaction().commit();
+            RootInfo<Person> again = Query.using(em).selectFrom(Person.class).cacheable();
+            again.whereExists(Phone.class).joinOn(Person_.id, Phone_.personId).with(Phone_.type).equalTo("Work");
+            long after = again.count();
+
+            // Then
+            assertThat(before, is(equalTo(0L)));
+            assertThat(after, is(equalTo(1L)));
+            assertThat(cache.getEvictionCount(), is(equalTo(1L)));
+        }
+        finally
+        {
+            writer.getTransaction().begin();
+            writer.find(Phone.class, 1).setType("Home");
+            writer.getTransaction().commit();
+            writer.close();
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void asyncTerminalsShouldOverlapIndependentQueries() throws Exception
+    {
+        // Given
+        FromInfo<Person, Person> women = Query.using(emFactory).selectFrom(Person.class).with(Person_.gender)
+            .equalTo("F");
+        RootInfo<Person> everybody = Query.using(emFactory).selectFrom(Person.class);
+
+        // When
+        Future<List<Person>> peeps = women.resultListAsync();
+        Future<Long> count = everybody.countAsync();
+
+        // Then
+        assertThat(peeps.get().size(), is(equalTo(2)));
+        assertThat(count.get(), is(equalTo(6L)));
+    }
+
+    @Test
+    public void asyncTerminalsShouldRunOnTheGivenExecutor() throws Exception
+    {
+        EntityManager em = emFactory.createEntityManager();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            // Given
+            FromInfo<Person, Person> query = Query.using(em).selectFrom(Person.class).executor(executor)
+                .with(Person_.lastName).equalTo("Smith");
+
+            // When
+            Person smith = query.singleResultAsync().get();
+
+            // Then
+            assertThat(smith.getId(), is(equalTo(1)));
+            assertThat(em.contains(smith), is(false));
+        }
+        finally
+        {
+            executor.shutdown();
+            em.close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void factoryQueriesShouldOnlyRunAsynchronously()
+    {
+        RootInfo<Person> query = Query.using(emFactory).selectFrom(Person.class);
+        query.resultList();
+    }
+
+
+    @Test
+    public void parallelScanShouldHandleEveryRecordOnce()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            final Set<Integer> ids = Collections.synchronizedSet(new HashSet<Integer>());
+
+            // When
+            long rows = Query.using(em).selectFrom(Person.class)
+                .parallelScan(4, new ResultHandler<Person>()
+                {
+                    public void handle(Person person)
+                    {
+                        ids.add(person.getId());
+                    }
+                });
+
+            // Then
+            assertThat(rows, is(equalTo(6L)));
+            assertThat(ids, is(equalTo((Set<Integer>) new HashSet<Integer>(Arrays.asList(1, 2, 3, 4, 5, 6)))));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void parallelScanShouldNotStartAThreadPerPartition()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+            // When
+            long rows = Query.using(em).selectFrom(Person.class)
+                .parallelScan(Integer.MAX_VALUE, new ResultHandler<Person>()
+                {
+                    public void handle(Person person)
+                    {
+                        threads.add(Thread.currentThread());
+                    }
+                });
+
+            // Then
+            assertThat(rows, is(equalTo(6L)));
+            assertThat(threads.size(), is(lessThanOrEqualTo(Runtime.getRuntime().availableProcessors())));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void parallelScanShouldKeepTheCriteria()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            final List<Person> women = Collections.synchronizedList(new ArrayList<Person>());
+
+            // When
+            long rows = Query.using(em).selectFrom(Person.class).with(Person_.gender).equalTo("F")
+                .parallelScan(2, new ResultHandler<Person>()
+                {
+                    public void handle(Person person)
+                    {
+                        women.add(person);
+                    }
+                });
+
+            // Then
+            assertThat(rows, is(equalTo(2L)));
+            for (Person person : women)
+            {
+                assertThat(person.getGender(), is(equalTo("F")));
+            }
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void queryStatisticsShouldAggregateExecutionsByShape()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        QueryStatistics statistics = new QueryStatistics();
+        QueryMetrics.addListener(statistics);
+        try
+        {
+            // Given
+            List<String> lastNames = Arrays.asList("Smith", "Bartel");
+
+            // When
+            for (String lastName : lastNames)
+            {
+                Query.using(em).selectFrom(Person.class).with(Person_.lastName).equalTo(lastName)
+                    .ascendingBy(Person_.firstName).resultList();
+            }
+            Query.using(em).selectFrom(Person.class).with(Person_.id).in(Arrays.asList(1, 2)).count();
+
+            // Then
+            QueryStatistics.Shape list = statistics.getShapes().get(
+                "list Person WHERE Person.lastName = ORDER BY Person.firstName ASC");
+            assertThat(list.getExecutionTimes().getCount(), is(equalTo(2L)));
+            assertThat(list.getRows(), is(equalTo(2L)));
+            assertThat(statistics.getShapes().get("count Person WHERE Person.id IN").getRows(), is(equalTo(1L)));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(statistics);
+            em.close();
+        }
+    }
+
+    @Test
+    public void queryListenersShouldSeeShortCircuitsAndCacheHits()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        final List<QueryEvent> events = new ArrayList<QueryEvent>();
+        QueryListener listener = new QueryListener()
+        {
+            public void handle(QueryEvent event)
+            {
+                events.add(event);
+            }
+        };
+        QueryMetrics.addListener(listener);
+        try
+        {
+            // Given
+            QueryCache.of(emFactory);
+
+            // When
+            Query.using(em).selectFrom(Person.class).with(Person_.id).equalTo(1).and(Person_.id).equalTo(2)
+                .resultList();
+            Query.using(em).selectFrom(Address.class).cacheable().with(Address_.state).equalTo("CA").count();
+            Query.using(em).selectFrom(Address.class).cacheable().with(Address_.state).equalTo("CA").count();
+
+            // Then
+            assertThat(events.size(), is(equalTo(3)));
+            assertThat(events.get(0).getType(), is(equalTo(QueryEvent.Type.SHORT_CIRCUIT)));
+            assertThat(events.get(1).getType(), is(equalTo(QueryEvent.Type.EXECUTED)));
+            assertThat(events.get(2).getType(), is(equalTo(QueryEvent.Type.CACHE_HIT)));
+            assertThat(events.get(2).getTerminal(), is(equalTo("count")));
+            assertThat(events.get(2).getFingerprint(), is(equalTo("Address WHERE Address.state =")));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(listener);
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void dataGeneratorShouldBeReproducibleFromItsSeed() throws Exception
+    {
+        Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:generated", "sa", "");
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("openjpa.ConnectionURL", "jdbc:hsqldb:mem:generated");
+        EntityManagerFactory generatedFactory = Persistence.createEntityManagerFactory("openjpa", properties);
+        try
+        {
+            // Given
+            DataGenerator generator = new DataGenerator(7).persons(2000).maxPhones(4);
+
+            // When
+            generator.generate(connection);
+            EntityManager em = generatedFactory.createEntityManager();
+            long smiths = Query.using(em).selectFrom(Person.class).with(Person_.lastName).equalTo("Smith").count();
+            long mobiles = Query.using(em).selectFrom(Person.class).join(Person_.phones).with(Phone_.type)
+                .equalTo("Mobile").count();
+            em.close();
+            generator.generate(connection);
+            em = generatedFactory.createEntityManager();
+
+            // Then
+            assertThat(Query.using(em).selectFrom(Person.class).count(), is(equalTo(2000L)));
+            assertThat(smiths, is(greaterThan(2000L / DataGenerator.LAST_NAMES.length)));
+            assertThat(Query.using(em).selectFrom(Person.class).with(Person_.lastName).equalTo("Smith").count(),
+                is(equalTo(smiths)));
+            assertThat(Query.using(em).selectFrom(Person.class).join(Person_.phones).with(Phone_.type)
+                .equalTo("Mobile").count(), is(equalTo(mobiles)));
+            em.close();
+        }
+        finally
+        {
+            generatedFactory.close();
+            connection.close();
+        }
+    }
+
+
+    @Test
+    public void slowQueryLogShouldRecordRedactedParametersAndCallSite()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        StringWriter log = new StringWriter();
+        WriterAppender appender = new WriterAppender(new PatternLayout("%m%n"), log);
+        Logger.getLogger(SlowQueryLog.class).addAppender(appender);
+        SlowQueryLog slowQueryLog = new SlowQueryLog(0, TimeUnit.MILLISECONDS).redactor(new SlowQueryLog.Redactor()
+        {
+            public Object redact(String parameter, Object value)
+            {
+                return "***";
+            }
+        });
+        QueryMetrics.addListener(slowQueryLog);
+        try
+        {
+            // Given
+            String lastName = "Smith";
+
+            // When
+            Query.using(em).parameterized().selectFrom(Person.class).with(Person_.lastName).equalTo(lastName)
+                .resultList();
+            Query.using(em).selectFrom(Person.class).with(Person_.lastName).equalTo(lastName).count();
+
+            // Then
+            String[] entries = log.toString().split("\n");
+            assertThat(entries.length, is(equalTo(2)));
+            assertThat(entries[0], containsString("Slow list query took"));
+            assertThat(entries[0], containsString("for 1 rows at com.quintech.criteria.CriteriaUtilsBehavior."
+                + "slowQueryLogShouldRecordRedactedParametersAndCallSite"));
+            assertThat(entries[0], containsString(": Person WHERE Person.lastName = with {p0=***}"));
+            assertThat(entries[1], containsString(": Person WHERE Person.lastName ="));
+            assertThat(log.toString(), not(containsString(lastName)));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(slowQueryLog);
+            Logger.getLogger(SlowQueryLog.class).removeAppender(appender);
+            em.close();
+        }
+    }
+
+    @Test
+    public void slowQueryLogShouldNotLogTheLiteralsOfParameterizedQueriesWithARedactor()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        StringWriter log = new StringWriter();
+        WriterAppender appender = new WriterAppender(new PatternLayout("%m%n"), log);
+        Logger.getLogger(SlowQueryLog.class).addAppender(appender);
+        SlowQueryLog slowQueryLog = new SlowQueryLog(0, TimeUnit.MILLISECONDS).redactor(new SlowQueryLog.Redactor()
+        {
+            public Object redact(String parameter, Object value)
+            {
+                return "***";
+            }
+        });
+        QueryMetrics.addListener(slowQueryLog);
+        try
+        {
+            // Given
+            Integer missingId = Integer.valueOf(987654);
+
+            // When
+            List<Person> peeps = Query.using(em).parameterized().selectFrom(Person.class).with(Person_.gender)
+                .equalTo("M").findAll(Arrays.asList(Integer.valueOf(1), missingId));
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(1)));
+            assertThat(log.toString(), containsString("Slow find query took"));
+            assertThat(log.toString(), not(containsString(missingId.toString())));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(slowQueryLog);
+            Logger.getLogger(SlowQueryLog.class).removeAppender(appender);
+            em.close();
+        }
+    }
+
+    @Test
+    public void slowQueryLogShouldBeRateLimited()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        StringWriter log = new StringWriter();
+        WriterAppender appender = new WriterAppender(new PatternLayout("%m%n"), log);
+        Logger.getLogger(SlowQueryLog.class).addAppender(appender);
+        SlowQueryLog slowQueryLog = new SlowQueryLog(0, TimeUnit.MILLISECONDS).maxEntriesPerSecond(2);
+        QueryMetrics.addListener(slowQueryLog);
+        try
+        {
+            // Given
+            int queries = 5;
+
+            // When
+            for (int i = 0; i < queries; i++)
+            {
+                Query.using(em).selectFrom(Person.class).count();
+            }
+
+            // Then
+            assertThat(log.toString().split("\n").length, is(equalTo(2)));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(slowQueryLog);
+            Logger.getLogger(SlowQueryLog.class).removeAppender(appender);
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void readOnlyQueriesShouldNotFlushPendingChanges()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            em.getTransaction().begin();
+            em.find(Person.class, 1).setLastName("Change");
+
+            // When
+            long readOnly = Query.using(em).selectFrom(Person.class).readOnly().with(Person_.lastName)
+                .equalTo("Change").count();
+            long flushed = Query.using(em).selectFrom(Person.class).with(Person_.lastName).equalTo("Change").count();
+
+            // Then
+            assertThat(readOnly, is(equalTo(0L)));
+            assertThat(flushed, is(equalTo(1L)));
+        }
+        finally
+        {
+            em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    @Test
+    public void defaultHintsShouldApplyToEveryQuery()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            Query.setDefaultHints(new QueryHints().fetchSize(50).timeout(2000).flushMode(FlushModeType.COMMIT));
+
+            // When
+            TypedQuery<Person> query = Query.using(em).selectFrom(Person.class).timeout(5000).compile().bind(em);
+
+            // Then
+            assertThat(query.getFlushMode(), is(equalTo(FlushModeType.COMMIT)));
+            assertThat(query.getHints().get("javax.persistence.query.timeout"), is(equalTo((Object) 5000)));
+            assertThat(query.getHints().get("openjpa.FetchPlan.FetchBatchSize"), is(equalTo((Object) 50)));
+        }
+        finally
+        {
+            Query.setDefaultHints(new QueryHints());
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void ignoreCasePredicatesShouldUseTheShadowAttributeWhenRegistered()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            CaseInsensitivity.byShadow(Person_.lastName, Person_.lastNameKey);
+
+            // When
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class);
+            query.with(Person_.lastName).startsWithIgnoreCase("sMi");
+            List<Person> peeps = query.resultList();
+            long equal = Query.using(em).parameterized().selectFrom(Person.class).with(Person_.lastName)
+                .equalToIgnoreCase("bartel").count();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(1)));
+            assertThat(peeps.get(0).getLastName(), is(equalTo("Smith")));
+            assertThat(equal, is(equalTo(1L)));
+            assertThat(query.getPredicates().get(0).toString(), not(containsString("UPPER")));
+        }
+        finally
+        {
+            CaseInsensitivity.byUpperCase(Person_.lastName);
+            em.close();
+        }
+    }
+
+    @Test
+    public void ignoreCasePredicatesShouldCompareAsIsWhenTheCollationIgnoresCase()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            CaseInsensitivity.byCollation(Person_.lastName);
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).with(Person_.lastName)
+                .equalToIgnoreCase("Perrine").resultList();
+            long differentCase = Query.using(em).selectFrom(Person.class).with(Person_.lastName)
+                .equalToIgnoreCase("perrine").count();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(1)));
+            assertThat(differentCase, is(equalTo(0L)));
+        }
+        finally
+        {
+            CaseInsensitivity.byUpperCase(Person_.lastName);
+            em.close();
+        }
+    }
+
+    @Test
+    public void ignoreCasePredicatesShouldNotDependOnTheDefaultLocale()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        Locale defaultLocale = Locale.getDefault();
+        try
+        {
+            // Given
+            Locale.setDefault(new Locale("tr", "TR"));
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).with(Person_.lastName)
+                .equalToIgnoreCase("smith").resultList();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(1)));
+            assertThat(peeps.get(0).getLastName(), is(equalTo("Smith")));
+        }
+        finally
+        {
+            Locale.setDefault(defaultLocale);
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void orShouldCombineWithThePreviousPredicateOnly()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class);
+            query.with(Person_.gender).equalTo("F").and(Person_.lastName).equalTo("Bartel")
+                .or(Person_.lastName).equalTo("Perrine");
+
+            // When
+            List<Person> peeps = query.ascendingBy(Person_.id).resultList();
+            long narrowed = Query.using(em).selectFrom(Person.class).with(Person_.id).equalTo(1)
+                .or(Person_.id).equalTo(2).and(Person_.id).equalTo(2).count();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(2)));
+            assertThat(peeps.get(0).getLastName(), is(equalTo("Bartel")));
+            assertThat(peeps.get(1).getLastName(), is(equalTo("Perrine")));
+            assertThat(narrowed, is(equalTo(1L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void endShouldCloseAGroupSoThatTheChainGoesOnOnItsEntity()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            int expectedRecords = 2;
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).anyOf().with(Person_.lastName)
+                .equalTo("Smith").with(Person_.lastName).equalTo("Bartel").allOf().with(Person_.firstName)
+                .equalTo("James").end().end().and(Person_.gender).equalTo("M").ascendingBy(Person_.id).resultList();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(expectedRecords)));
+            assertThat(peeps.get(0).getLastName(), is(equalTo("Smith")));
+            assertThat(peeps.get(1).getLastName(), is(equalTo("McKinley")));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void predicateGroupsShouldNestAndBeAndedWithTheOtherCriteria()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class);
+            query.with(Person_.gender).equalTo("M");
+            PredicateGroup<Person, Person, RootInfo<Person>> names = query.anyOf();
+            names.with(Person_.lastName).startsWith("Bu");
+            names.allOf().with(Person_.firstName).equalTo("James").and(Person_.lastName).equalTo("McKinley");
+            query.allOf();
+
+            // When
+            List<Person> peeps = query.ascendingBy(Person_.id).resultList();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(2)));
+            assertThat(peeps.get(0).getLastName(), is(equalTo("McKinley")));
+            assertThat(peeps.get(1).getLastName(), is(equalTo("Buers")));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void whereExistsShouldFilterWithoutMultiplyingRows()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> withPhones = Query.using(em).selectFrom(Person.class);
+            withPhones.whereExists(Phone.class).joinOn(Person_.id, Phone_.personId);
+            RootInfo<Person> withoutMobile = Query.using(em).selectFrom(Person.class);
+            withoutMobile.whereNotExists(Phone.class).joinOn(Person_.id, Phone_.personId).with(Phone_.type)
+                .equalTo("Mobile");
+
+            // When
+            List<Person> peeps = withPhones.resultList();
+            long others = withoutMobile.count();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(1)));
+            assertThat(peeps.get(0).getLastName(), is(equalTo("Smith")));
+            assertThat(others, is(equalTo(5L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void inSubqueryShouldMatchTheSelectedAttribute()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class);
+            query.with(Person_.id).inSubquery(Phone.class, Phone_.personId).with(Phone_.type).equalTo("Office");
+            RootInfo<Person> either = Query.using(em).selectFrom(Person.class);
+            either.with(Person_.lastName).equalTo("Bartel").or(Person_.id).inSubquery(Phone.class, Phone_.personId);
+
+            // When
+            List<Person> peeps = query.resultList();
+            long count = either.count();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(1)));
+            assertThat(peeps.get(0).getLastName(), is(equalTo("Smith")));
+            assertThat(count, is(equalTo(2L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void criteriaOfASubqueryShouldChainOnTheSubquery()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class);
+            SubqueryInfo<Person, Phone, RootInfo<Person>> subquery = query.whereNotExists(Phone.class).joinOn(Person_.id, Phone_.personId)
+                .with(Phone_.type).equalTo("Home").or(Phone_.type).equalTo("Office").and(Phone_.type).startsWith("O");
+
+            // When
+            long count = query.count();
+
+            // Then
+            assertThat(subquery.getPredicates().size(), is(equalTo(3)));
+            assertThat(count, is(equalTo(5L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void aggregatesShouldBeComputedByTheDatabase()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class).ascendingBy(Person_.lastName);
+            RootInfo<Person> women = Query.using(em).selectFrom(Person.class);
+            women.with(Person_.gender).equalTo("F");
+            RootInfo<Person> nobody = Query.using(em).selectFrom(Person.class);
+            nobody.with(Person_.id).in(new ArrayList<Integer>());
+
+            // When
+            Date youngest = query.max(Person_.birthDate);
+            Date oldest = query.min(Person_.birthDate);
+            Integer sum = women.sum(Person_.id);
+            Integer none = nobody.sum(Person_.id);
+
+            // Then
+            assertThat(oldest.getTime(), is(equalTo(em.find(Person.class, 1).getBirthDate().getTime())));
+            assertThat(youngest.after(oldest), is(true));
+            assertThat(sum, is(equalTo(7)));
+            assertThat(none, is(nullValue()));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void groupByShouldReturnTuplesAndMapsFilteredByHaving()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class).ascendingBy(Person_.gender);
+
+            // When
+            List<Tuple> genders = query.groupBy(Person_.gender).count().max(Person_.id).tupleList();
+            Map<String, Long> crowded = query.groupBy(Person_.gender).count().having().notLessThan(3L).resultMap();
+            List<Person> peeps = query.resultList();
+
+            // Then
+            assertThat(genders.size(), is(equalTo(2)));
+            assertThat(genders.get(0).get(0, String.class), is(equalTo("F")));
+            assertThat(genders.get(0).get(1, Long.class), is(equalTo(2L)));
+            assertThat(genders.get(0).get(2, Integer.class), is(equalTo(4)));
+            assertThat(genders.get(1).get(1, Long.class), is(equalTo(4L)));
+            assertThat(crowded.size(), is(equalTo(1)));
+            assertThat(crowded.get("M"), is(equalTo(4L)));
+            assertThat(peeps.size(), is(equalTo(6)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void idLookupsShouldBeServedByTheEntityManager()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        final List<QueryEvent> events = new ArrayList<QueryEvent>();
+        QueryListener listener = new QueryListener()
+        {
+            public void handle(QueryEvent event)
+            {
+                events.add(event);
+            }
+        };
+        QueryMetrics.addListener(listener);
+        try
+        {
+            // Given
+            Person managed = em.find(Person.class, 1);
+
+            // When
+            Person found = Query.using(em).selectFrom(Person.class).with(Person_.id).equalTo(1).singleResult();
+            List<Person> missing = Query.using(em).selectFrom(Person.class).with(Person_.id).equalTo(99).resultList();
+            Person queried = Query.using(em).selectFrom(Person.class).with(Person_.id).equalTo(1)
+                .and(Person_.lastName).equalTo("Smith").singleResult();
+
+            // Then
+            assertThat(found == managed, is(true));
+            assertThat(queried == managed, is(true));
+            assertThat(missing.size(), is(equalTo(0)));
+            assertThat(events.size(), is(equalTo(3)));
+            assertThat(events.get(0).getTerminal(), is(equalTo("find")));
+            assertThat(events.get(1).getTerminal(), is(equalTo("find")));
+            assertThat(events.get(2).getTerminal(), is(equalTo("range")));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(listener);
+            em.close();
+        }
+    }
+
+    @Test
+    public void findAllShouldQueryOnlyTheIdsMissingFromThePersistenceContext()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        final List<QueryEvent> events = new ArrayList<QueryEvent>();
+        QueryListener listener = new QueryListener()
+        {
+            public void handle(QueryEvent event)
+            {
+                events.add(event);
+            }
+        };
+        try
+        {
+            // Given
+            Person managed = em.find(Person.class, 4);
+            QueryMetrics.addListener(listener);
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).inChunksOf(2)
+                .findAll(Arrays.asList(4, 2, 99, 6, 1));
+            List<Person> women = Query.using(em).selectFrom(Person.class).with(Person_.gender).equalTo("F")
+                .findAll(Arrays.asList(4, 2));
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(4)));
+            assertThat(peeps.get(0) == managed, is(true));
+            assertThat(peeps.get(1).getId(), is(equalTo(2)));
+            assertThat(peeps.get(2).getId(), is(equalTo(6)));
+            assertThat(peeps.get(3).getId(), is(equalTo(1)));
+            assertThat(events.size(), is(equalTo(3)));
+            assertThat(events.get(0).getRows(), is(equalTo(1L)));
+            assertThat(events.get(1).getRows(), is(equalTo(2L)));
+            assertThat(women.size(), is(equalTo(1)));
+            assertThat(women.get(0) == managed, is(true));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(listener);
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void prefetchShouldLoadCollectionsInChunksAfterTheQuery()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        final List<QueryEvent> events = new ArrayList<QueryEvent>();
+        QueryListener listener = new QueryListener()
+        {
+            public void handle(QueryEvent event)
+            {
+                events.add(event);
+            }
+        };
+        QueryMetrics.addListener(listener);
+        try
+        {
+            // Given
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class).prefetch(Person_.phones).inChunksOf(4);
+
+            // When
+            List<Person> peeps = query.ascendingBy(Person_.id).limit(5);
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(5)));
+            for (Person peep : peeps)
+            {
+                assertThat(emFactory.getPersistenceUnitUtil().isLoaded(peep, "phones"), is(true));
+            }
+            assertThat(peeps.get(0).getPhones().size(), is(equalTo(3)));
+            assertThat(peeps.get(1).getPhones().size(), is(equalTo(0)));
+            assertThat(events.size(), is(equalTo(3)));
+            assertThat(events.get(1).getTerminal(), is(equalTo("prefetch")));
+            assertThat(events.get(2).getTerminal(), is(equalTo("prefetch")));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(listener);
+            em.close();
+        }
+    }
+
+    @Test
+    public void idEqualitiesOredWithOtherPredicatesShouldNotBeServedByTheEntityManager()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            int expectedRecords = 2;
+
+            // When
+            List<Person> byIds = Query.using(em).selectFrom(Person.class).with(Person_.id).equalTo(1)
+                .or(Person_.id).equalTo(2).resultList();
+            List<Person> byIdOrName = Query.using(em).selectFrom(Person.class).with(Person_.id).equalTo(1)
+                .or(Person_.lastName).equalTo("Bartel").resultList();
+
+            // Then
+            assertThat(byIds.size(), is(equalTo(expectedRecords)));
+            assertThat(byIdOrName.size(), is(equalTo(expectedRecords)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void partitionRangesShouldCoverIdRangesWiderThanALong()
+    {
+        // Given
+        int partitions = 4;
+
+        // When
+        List<long[]> whole = ParallelScan.partitionRanges(Long.MIN_VALUE, Long.MAX_VALUE, partitions);
+        List<long[]> top = ParallelScan.partitionRanges(Long.MAX_VALUE - 2, Long.MAX_VALUE, partitions);
+
+        // Then
+        assertThat(whole.size(), is(equalTo(partitions)));
+        assertThat(whole.get(0)[0], is(equalTo(Long.MIN_VALUE)));
+        assertThat(whole.get(partitions - 1)[1], is(equalTo(Long.MAX_VALUE)));
+        for (int i = 1; i < whole.size(); i++)
+        {
+            assertThat(whole.get(i)[0], is(equalTo(whole.get(i - 1)[1] + 1)));
+        }
+        assertThat(top.size(), is(equalTo(3)));
+        assertThat(top.get(2)[0], is(equalTo(Long.MAX_VALUE)));
+        assertThat(top.get(2)[1], is(equalTo(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void stringRangesShouldNotBeTakenForContradictions()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            int expectedRecords = 1;
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).with(Person_.lastName).notLessThan("S")
+                .and(Person_.lastName).notGreaterThan("b").resultList();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(expectedRecords)));
+            assertThat(peeps.get(0).getLastName(), is(equalTo("Smith")));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void emptyInShouldStayUnsatisfiableWhenAnotherPredicateIsOred()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            long shortCircuits = QueryMetrics.getShortCircuitCount();
+
+            // When
+            List<Person> none = Query.using(em).selectFrom(Person.class).with(Person_.id)
+                .in(Collections.<Integer> emptyList()).and(Person_.lastName).equalTo("Smith")
+                .or(Person_.lastName).equalTo("Bartel").resultList();
+            List<Person> bartels = Query.using(em).selectFrom(Person.class).with(Person_.id)
+                .in(Collections.<Integer> emptyList()).or(Person_.lastName).equalTo("Bartel").resultList();
+
+            // Then
+            assertThat(none.isEmpty(), is(true));
+            assertThat(bartels.size(), is(equalTo(1)));
+            assertThat(QueryMetrics.getShortCircuitCount() - shortCircuits, is(equalTo(1L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void pagesShouldCoverRecordsWithNullSortKeys()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> byBirthDate = Query.using(em).selectFrom(Person.class).ascendingBy(Person_.birthDate);
+            RootInfo<Person> byLatestBirthDate = Query.using(em).selectFrom(Person.class)
+                .descendingBy(Person_.birthDate);
+
+            // When
+            List<Person> ascending = new ArrayList<Person>();
+            for (Page<Person> page = byBirthDate.firstPage(1); !page.getContent().isEmpty(); page =
+                byBirthDate.pageAfter(page))
+            {
+                ascending.addAll(page.getContent());
+            }
+            List<Person> descending = new ArrayList<Person>();
+            for (Page<Person> page = byLatestBirthDate.firstPage(1); !page.getContent().isEmpty(); page =
+                byLatestBirthDate.pageAfter(page))
+            {
+                descending.addAll(page.getContent());
+            }
+
+            // Then
+            assertThat(ascending, is(equalTo(byBirthDate.resultList())));
+            assertThat(ascending.size(), is(equalTo(6)));
+            assertThat(ascending.get(0).getLastName(), is(equalTo("Buers")));
+            assertThat(descending, is(equalTo(byLatestBirthDate.resultList())));
+            assertThat(descending.size(), is(equalTo(6)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void chunkedLimitsShouldStopQueryingOnceEnoughRowsAreFound()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        final List<QueryEvent> events = new ArrayList<QueryEvent>();
+        QueryListener listener = new QueryListener()
+        {
+            public void handle(QueryEvent event)
+            {
+                events.add(event);
+            }
+        };
+        QueryMetrics.addListener(listener);
+        try
+        {
+            // Given
+            List<Integer> ids = Arrays.asList(1, 2, 3, 4, 5, 6);
+
+            // When
+            List<Person> first = Query.using(em).selectFrom(Person.class).inChunksOf(2).with(Person_.id).in(ids)
+                .limit(3);
+            int unorderedEvents = events.size();
+            List<Person> latest = Query.using(em).selectFrom(Person.class).inChunksOf(2).with(Person_.id).in(ids)
+                .descendingBy(Person_.birthDate).page(1, 2);
+            List<Person> expected = Query.using(em).selectFrom(Person.class).with(Person_.id).in(ids)
+                .descendingBy(Person_.birthDate).page(1, 2);
+
+            // Then
+            assertThat(first.size(), is(equalTo(3)));
+            assertThat(unorderedEvents, is(equalTo(2)));
+            for (int i = 0; i < unorderedEvents; i++)
+            {
+                assertThat(events.get(i).getRows(), is(equalTo(2L)));
+            }
+            assertThat(latest, is(equalTo(expected)));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(listener);
+            em.close();
+        }
+    }
+
+    @Test
+    public void cachedQueriesShouldNotShareEntriesAcrossHintsOrLocks()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        final List<QueryEvent> events = new ArrayList<QueryEvent>();
+        QueryListener listener = new QueryListener()
+        {
+            public void handle(QueryEvent event)
+            {
+                events.add(event);
+            }
+        };
+        QueryMetrics.addListener(listener);
+        try
+        {
+            // Given
+            QueryCache.of(emFactory);
+            em.getTransaction().begin();
+
+            // When
+            Query.using(em).selectFrom(Person.class).cacheable().with(Person_.lastName).equalTo("Smith").resultList();
+            List<Person> prefetched = Query.using(em).selectFrom(Person.class).cacheable().prefetch(Person_.phones)
+                .with(Person_.lastName).equalTo("Smith").resultList();
+            Query.using(em).selectFrom(Person.class).cacheable().readOnly().with(Person_.lastName).equalTo("Smith")
+                .resultList();
+            Query.using(em).selectFrom(Person.class).cacheable().lockMode(LockModeType.OPTIMISTIC)
+                .with(Person_.lastName).equalTo("Smith").resultList();
+            Query.using(em).selectFrom(Person.class).cacheable().lockMode(LockModeType.OPTIMISTIC)
+                .with(Person_.lastName).equalTo("Smith").resultList();
+
+            // Then
+            assertThat(prefetched.get(0).getPhones().size(), is(equalTo(3)));
+            for (QueryEvent event : events)
+            {
+                assertThat(event.getType(), is(not(equalTo(QueryEvent.Type.CACHE_HIT))));
+            }
+        }
+        finally
+        {
+            QueryMetrics.removeListener(listener);
+            em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    @Test
+    public void prefetchShouldLoadCollectionsOfDetachedChunkResults()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            // Given
+            List<Integer> ids = Arrays.asList(1, 2, 3, 4, 5, 6);
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).inChunksOf(2).inParallel(executor)
+                .prefetch(Person_.phones).with(Person_.id).in(ids).ascendingBy(Person_.id).resultList();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(6)));
+            for (int i = 0; i < peeps.size(); i++)
+            {
+                Person person = peeps.get(i);
+                assertThat(person.getId(), is(equalTo(i + 1)));
+                assertThat(em.contains(person), is(true));
+                assertThat(emFactory.getPersistenceUnitUtil().isLoaded(person, "phones"), is(true));
+            }
+            assertThat(peeps.get(0).getPhones().size(), is(equalTo(3)));
+        }
+        finally
+        {
+            executor.shutdown();
+            em.close();
+        }
+    }
+
+    @Test
+    public void orShouldFollowAnInListOnAJoinedEntity()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            long expectedPhones = 2;
+
+            // When
+            List<Person> peeps = Query.using(em).selectFrom(Person.class).distinct().join(Person_.phones)
+                .with(Phone_.type).in(Arrays.asList("Home")).or(Phone_.type).equalTo("Mobile")
+                .resultList();
+            long phones = Query.using(em).selectFrom(Person.class).join(Person_.phones).with(Phone_.type)
+                .in(Arrays.asList("Home")).or(Phone_.type).equalTo("Mobile").count();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(1)));
+            assertThat(phones, is(equalTo(expectedPhones)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void orShouldFollowAChunkedInList()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            List<Integer> ids = Arrays.asList(1, 2, 3);
+
+            // When
+            List<Person> chunked = Query.using(em).selectFrom(Person.class).inChunksOf(2).with(Person_.gender)
+                .equalTo("M").and(Person_.id).in(ids).or(Person_.lastName).equalTo("Bartel").ascendingBy(Person_.id)
+                .resultList();
+            List<Person> whole = Query.using(em).selectFrom(Person.class).with(Person_.gender).equalTo("M")
+                .and(Person_.id).in(ids).or(Person_.lastName).equalTo("Bartel").ascendingBy(Person_.id).resultList();
+            long count = Query.using(em).selectFrom(Person.class).inChunksOf(2).with(Person_.gender).equalTo("M")
+                .and(Person_.id).in(ids).or(Person_.lastName).equalTo("Bartel").count();
+
+            // Then
+            assertThat(chunked.size(), is(equalTo(2)));
+            assertThat(chunked.get(0).getLastName(), is(equalTo("Smith")));
+            assertThat(chunked.get(1).getLastName(), is(equalTo("McKinley")));
+            assertThat(whole.size(), is(equalTo(2)));
+            assertThat(count, is(equalTo(2L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void failingListenersShouldNotAffectQueriesOrOtherListeners()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        final List<QueryEvent> events = new ArrayList<QueryEvent>();
+        QueryListener failing = new QueryListener()
+        {
+            public void handle(QueryEvent event)
+            {
+                throw new IllegalStateException("Listener failure");
+            }
+        };
+        QueryListener recording = new QueryListener()
+        {
+            public void handle(QueryEvent event)
+            {
+                events.add(event);
+            }
+        };
+        QueryMetrics.addListener(failing);
+        QueryMetrics.addListener(recording);
+        try
+        {
+            // Given
+            int expectedRecords = 2;
+
+            // When
+            List<Person> females = Query.using(em).selectFrom(Person.class).with(Person_.gender).equalTo("F")
+                .resultList();
+
+            // Then
+            assertThat(females.size(), is(equalTo(expectedRecords)));
+            assertThat(events.size(), is(equalTo(1)));
+            assertThat(events.get(0).getType(), is(equalTo(QueryEvent.Type.EXECUTED)));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(failing);
+            QueryMetrics.removeListener(recording);
+            em.close();
+        }
+    }
+
+    @Test
+    public void listenersAddedAfterTheQueryWasBuiltShouldSeeItsShapeAndCallSite()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        final List<String> fingerprints = new ArrayList<String>();
+        final List<StackTraceElement> callSites = new ArrayList<StackTraceElement>();
+        QueryListener listener = new QueryListener()
+        {
+            public void handle(QueryEvent event)
+            {
+                fingerprints.add(event.getFingerprint());
+                callSites.add(event.getCallSite());
+            }
+        };
+        try
+        {
+            // Given
+            FromInfo<Person, Person> query = Query.using(em).selectFrom(Person.class).with(Person_.gender)
+                .equalTo("F");
+            QueryMetrics.addListener(listener);
+
+            // When
+            query.resultList();
+
+            // Then
+            assertThat(fingerprints.size(), is(equalTo(1)));
+            assertThat(fingerprints.get(0), is(equalTo("Person WHERE Person.gender =")));
+            assertThat(callSites.get(0).getMethodName(),
+                is(equalTo("listenersAddedAfterTheQueryWasBuiltShouldSeeItsShapeAndCallSite")));
+        }
+        finally
+        {
+            QueryMetrics.removeListener(listener);
+            em.close();
+        }
+    }
+
+
+    @Test
+    public void endShouldGoBackFromASubqueryToTheEntityThatOpenedIt()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            int expectedRecords = 1;
+
+            // When
+            long exists = Query.using(em).selectFrom(Person.class).whereExists(Phone.class)
+                .joinOn(Person_.id, Phone_.personId).with(Phone_.type).equalTo("Mobile").end()
+                .and(Person_.lastName).equalTo("Smith").count();
+            long in = Query.using(em).selectFrom(Person.class).with(Person_.id)
+                .inSubquery(Phone.class, Phone_.personId).with(Phone_.type).equalTo("Office").end()
+                .and(Person_.gender).equalTo("F").count();
+
+            // Then
+            assertThat(exists, is(equalTo((long) expectedRecords)));
+            assertThat(in, is(equalTo(0L)));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    @Test
+    public void subqueriesShouldCorrelateWithTheJoinThatOpenedThem()
+    {
+        EntityManager em = emFactory.createEntityManager();
+        try
+        {
+            // Given
+            RootInfo<Person> query = Query.using(em).selectFrom(Person.class);
+            query.join(Person_.phones).whereExists(Phone.class).joinOn(Phone_.id, Phone_.id).with(Phone_.type)
+                .equalTo("Mobile");
+
+            // When
+            List<Person> peeps = query.resultList();
+
+            // Then
+            assertThat(peeps.size(), is(equalTo(1)));
+            assertThat(peeps.get(0).getLastName(), is(equalTo("Smith")));
+        }
+        finally
+        {
+            em.close();
+        }
+    }
 }
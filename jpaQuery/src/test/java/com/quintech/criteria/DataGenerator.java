@@ -0,0 +1,258 @@
+package com.quintech.criteria;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Fills the tables of schema.ddl with synthetic persons, addresses and phones. The same seed and settings always
+ * produce the same rows. Last names, states and the number of addresses and phones per person follow a power law
+ * whose exponent is the skew: with the default of 2, a few names and states are frequent and many persons have a
+ * single address and no phone while a few have the maximum.
+ */
+public class DataGenerator
+{
+    public static final String[] LAST_NAMES = { "Smith", "Johnson", "Williams", "Brown", "Jones", "Miller", "Davis",
+        "Garcia", "Rodriguez", "Wilson", "Martinez", "Anderson", "Taylor", "Thomas", "Hernandez", "Moore", "Martin",
+        "Jackson", "Thompson", "White", "Lopez", "Lee", "Gonzalez", "Harris", "Clark", "Lewis", "Robinson", "Walker",
+        "Perez", "Hall", "Young", "Allen" };
+    public static final String[] FIRST_NAMES = { "James", "Mary", "John", "Patricia", "Robert", "Jennifer",
+        "Michael", "Linda", "William", "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica" };
+    public static final String[] STATES = { "CA", "TX", "FL", "NY", "PA", "IL", "OH", "GA", "NC", "MI", "NJ", "VA",
+        "WA", "AZ", "MA", "TN" };
+    public static final String[] PHONE_TYPES = { "Mobile", "Home", "Office" };
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long BIRTH_DATES_FROM = -25000 * DAY;
+
+    private static final String[] INDEXES = {
+        "CREATE INDEX Person_LastName ON Person (LastName, FirstName)",
+        "CREATE INDEX Person_LastNameKey ON Person (LastNameKey)",
+        "CREATE INDEX Person_Gender ON Person (Gender)",
+        "CREATE INDEX Person_DOB ON Person (DOB)",
+        "CREATE INDEX Address_PersonId ON Address (PersonId)",
+        "CREATE INDEX Address_State ON Address (State)",
+        "CREATE INDEX Phone_PersonId ON Phone (PersonId)",
+        "CREATE INDEX Phone_Type ON Phone (Type)" };
+
+    private final long seed;
+    private int persons = 1000;
+    private int maxAddresses = 3;
+    private int maxPhones = 5;
+    private double skew = 2;
+    private int batchSize = 1000;
+
+    public DataGenerator(long seed)
+    {
+        super();
+        this.seed = seed;
+    }
+
+    /**
+     * Generates into a database from the command line: jdbc-url persons [seed].
+     */
+    public static void main(String[] args) throws Exception
+    {
+        Connection connection = DriverManager.getConnection(args[0], "sa", "");
+        try
+        {
+            long started = System.currentTimeMillis();
+            new DataGenerator(args.length > 2 ? Long.parseLong(args[2]) : 0).persons(Integer.parseInt(args[1]))
+                .generate(connection);
+            System.out.println("Generated " + args[1] + " persons in " + (System.currentTimeMillis() - started)
+                + " ms");
+        }
+        finally
+        {
+            connection.close();
+        }
+    }
+
+    public DataGenerator persons(int persons)
+    {
+        this.persons = persons;
+        return this;
+    }
+
+    public DataGenerator maxAddresses(int maxAddresses)
+    {
+        if (maxAddresses < 1)
+        {
+            throw new IllegalArgumentException("Every person has at least one address");
+        }
+        this.maxAddresses = maxAddresses;
+        return this;
+    }
+
+    public DataGenerator maxPhones(int maxPhones)
+    {
+        this.maxPhones = maxPhones;
+        return this;
+    }
+
+    public DataGenerator skew(double skew)
+    {
+        this.skew = skew;
+        return this;
+    }
+
+    public DataGenerator batchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Drops and recreates the schema, fills it and adds the indexes on the columns queries filter and join on.
+     */
+    public void generate(Connection connection) throws SQLException
+    {
+        createSchema(connection);
+        populate(connection);
+        createIndexes(connection);
+    }
+
+    public void createSchema(Connection connection) throws SQLException
+    {
+        execute(connection, readResource("schema.ddl"));
+    }
+
+    public void createIndexes(Connection connection) throws SQLException
+    {
+        for (String index : INDEXES)
+        {
+            execute(connection, index);
+        }
+    }
+
+    public void populate(Connection connection) throws SQLException
+    {
+        Random random = new Random(this.seed);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        PreparedStatement person = connection.prepareStatement(
+            "INSERT INTO Person (PersonId, FirstName, LastName, LastNameKey, DOB, Gender)"
+                + " VALUES (?, ?, ?, ?, ?, ?)");
+        PreparedStatement address = connection.prepareStatement(
+            "INSERT INTO Address (AddressId, PersonId, Street1, Street2, City, State, Zip) VALUES (?, ?, ?, ?, ?, ?, ?)");
+        PreparedStatement phone = connection.prepareStatement(
+            "INSERT INTO Phone (PhoneId, PersonId, Number, Type) VALUES (?, ?, ?, ?)");
+        try
+        {
+            int addressId = 0;
+            int phoneId = 0;
+            for (int personId = 1; personId <= this.persons; personId++)
+            {
+                person.setInt(1, personId);
+                person.setString(2, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+                String lastName = LAST_NAMES[skewed(random, LAST_NAMES.length)];
+                person.setString(3, lastName);
+                person.setString(4, lastName.toUpperCase(Locale.ROOT));
+                person.setTimestamp(5, random.nextInt(50) == 0 ? null : new Timestamp(BIRTH_DATES_FROM
+                    + random.nextInt(30000) * DAY));
+                person.setString(6, random.nextBoolean() ? "F" : "M");
+                person.addBatch();
+
+                int addresses = 1 + skewed(random, this.maxAddresses);
+                for (int i = 0; i < addresses; i++)
+                {
+                    address.setInt(1, ++addressId);
+                    address.setInt(2, personId);
+                    address.setString(3, (1 + random.nextInt(9999)) + " Main Street");
+                    address.setString(4, random.nextInt(4) == 0 ? "Apt " + (1 + random.nextInt(99)) : null);
+                    address.setString(5, "City" + random.nextInt(500));
+                    address.setString(6, STATES[skewed(random, STATES.length)]);
+                    address.setString(7, String.valueOf(10000 + random.nextInt(90000)));
+                    address.addBatch();
+                }
+
+                int phones = skewed(random, this.maxPhones + 1);
+                for (int i = 0; i < phones; i++)
+                {
+                    phone.setInt(1, ++phoneId);
+                    phone.setInt(2, personId);
+                    phone.setString(3, "555-" + (1000000 + random.nextInt(9000000)));
+                    phone.setString(4, PHONE_TYPES[i % PHONE_TYPES.length]);
+                    phone.addBatch();
+                }
+
+                if (personId % this.batchSize == 0 || personId == this.persons)
+                {
+                    person.executeBatch();
+                    address.executeBatch();
+                    phone.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+        finally
+        {
+            person.close();
+            address.close();
+            phone.close();
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Index in [0, bound) drawn so that lower indexes are more frequent the higher the skew; 1 is uniform.
+     */
+    private int skewed(Random random, int bound)
+    {
+        return (int) (Math.pow(random.nextDouble(), this.skew) * bound);
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException
+    {
+        Statement statement = connection.createStatement();
+        try
+        {
+            statement.execute(sql);
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    private static String readResource(String name) throws SQLException
+    {
+        InputStream stream = DataGenerator.class.getClassLoader().getResourceAsStream(name);
+        if (stream == null)
+        {
+            throw new SQLException(name + " is not on the classpath");
+        }
+
+        StringBuilder text = new StringBuilder();
+        try
+        {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+            try
+            {
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    text.append(line).append("\n");
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new SQLException("Cannot read " + name, e);
+        }
+        return text.toString();
+    }
+}
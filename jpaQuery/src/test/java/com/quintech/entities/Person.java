@@ -2,6 +2,7 @@ package com.quintech.entities;
 
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 
 import javax.persistence.Column;
@@ -10,6 +11,8 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 
 @Entity(name = "Person")
 public class Person
@@ -22,6 +25,8 @@ public class Person
     private String firstName;
     @Column(name = "LastName")
     private String lastName;
+    @Column(name = "LastNameKey")
+    private String lastNameKey;
     @Column(name = "DOB")
     private Date birthDate;
     @Column(name = "Gender")
@@ -61,6 +66,18 @@ public class Person
         this.lastName = lastName;
     }
 
+    public String getLastNameKey()
+    {
+        return lastNameKey;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void updateLastNameKey()
+    {
+        lastNameKey = lastName == null ? null : lastName.toUpperCase(Locale.ROOT);
+    }
+
     public Date getBirthDate()
     {
         return birthDate;
@@ -20,5 +20,6 @@ public class Person_ {
     public static volatile SingularAttribute<Person,String> gender;
     public static volatile SingularAttribute<Person,Integer> id;
     public static volatile SingularAttribute<Person,String> lastName;
+    public static volatile SingularAttribute<Person,String> lastNameKey;
     public static volatile SetAttribute<Person,Phone> phones;
 }